@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.binding.hive;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.sentry.binding.hive.authz.HiveAuthzBinding;
+import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges;
+import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationScope;
+import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationType;
+import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
+import org.apache.sentry.binding.hive.conf.HiveAuthzConf.AuthzConfVars;
+import org.apache.sentry.core.Action;
+import org.apache.sentry.core.Authorizable;
+import org.apache.sentry.core.Authorizable.AuthorizableType;
+import org.apache.sentry.core.Database;
+import org.apache.sentry.core.Subject;
+import org.apache.sentry.core.Table;
+import org.apache.sentry.provider.file.PolicyFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.io.Files;
+
+/**
+ * Filtering the result of SHOW TABLES the way {@link HiveAuthzBindingHook}
+ * does, in one batch, compared to authorizing each table separately. The
+ * user can see every other table of the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FilterHookBenchmark {
+  private static final String SERVER = "server1";
+  private static final String DATABASE = "db1";
+  private static final int TABLES_PER_ROLE = 100;
+  private static final EnumSet<Action> ANY_ACCESS = EnumSet.of(Action.SELECT, Action.INSERT);
+  private static final HiveAuthzPrivileges TABLE_METADATA_PRIVILEGE =
+      new HiveAuthzPrivileges.AuthzPrivilegeBuilder().
+      addInputObjectPriviledge(AuthorizableType.Table, ANY_ACCESS).
+      setOperationScope(HiveOperationScope.TABLE).
+      setOperationType(HiveOperationType.INFO).
+      build();
+
+  @Param({"1000", "50000"})
+  private int tables;
+
+  private File baseDir;
+  private HiveAuthzBinding binding;
+  private Subject subject;
+  private List<String> tableNames;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    baseDir = Files.createTempDir();
+    PolicyFile policyFile = new PolicyFile();
+    policyFile.addGroupsToUser("user1", "group1");
+    tableNames = new ArrayList<String>(tables);
+    for (int i = 0; i < tables; i++) {
+      tableNames.add("tab" + i);
+      if (i % 2 == 0) {
+        // keep roles small, PolicyFile checks for duplicates with a linear scan
+        String role = "role" + (i / TABLES_PER_ROLE);
+        if (i % TABLES_PER_ROLE == 0) {
+          policyFile.addRolesToGroup("group1", role);
+        }
+        policyFile.addPermissionsToRole(role, "server=" + SERVER + "->db=" + DATABASE +
+            "->table=tab" + i + "->action=select");
+      }
+    }
+    File iniFile = new File(baseDir, "policy.ini");
+    policyFile.write(iniFile);
+    File authzSite = new File(baseDir, "sentry-site.xml");
+    writeAuthzSite(authzSite, iniFile);
+    binding = new HiveAuthzBinding(new HiveConf(),
+        new HiveAuthzConf(authzSite.toURI().toURL()));
+    subject = new Subject("user1");
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    if (baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Benchmark
+  public int filterShowTables() {
+    List<Table> children = new ArrayList<Table>(tableNames.size());
+    for (String tableName : tableNames) {
+      children.add(new Table(tableName));
+    }
+    List<Authorizable> parentHierarchy = new ArrayList<Authorizable>();
+    parentHierarchy.add(binding.getAuthServer());
+    parentHierarchy.add(new Database(DATABASE));
+    BitSet allowed = binding.authorize(subject, parentHierarchy, children, ANY_ACCESS);
+    return allowed.cardinality();
+  }
+
+  @Benchmark
+  public int filterShowTablesPerTable() {
+    int allowed = 0;
+    List<List<Authorizable>> outputHierarchy = new ArrayList<List<Authorizable>>();
+    for (String tableName : tableNames) {
+      List<Authorizable> hierarchy = new ArrayList<Authorizable>();
+      hierarchy.add(binding.getAuthServer());
+      hierarchy.add(new Database(DATABASE));
+      hierarchy.add(new Table(tableName));
+      List<List<Authorizable>> inputHierarchy = new ArrayList<List<Authorizable>>();
+      inputHierarchy.add(hierarchy);
+      if (binding.checkPrivileges(HiveOperation.SHOWTABLES, TABLE_METADATA_PRIVILEGE, subject,
+          inputHierarchy, outputHierarchy).isAllowed()) {
+        allowed++;
+      }
+    }
+    return allowed;
+  }
+
+  private static void writeAuthzSite(File authzSite, File iniFile) throws IOException {
+    Configuration conf = new Configuration(false);
+    conf.set(AuthzConfVars.AUTHZ_PROVIDER.getVar(),
+        "org.apache.sentry.provider.file.LocalGroupResourceAuthorizationProvider");
+    conf.set(AuthzConfVars.AUTHZ_PROVIDER_RESOURCE.getVar(), iniFile.getPath());
+    conf.set(AuthzConfVars.AUTHZ_SERVER_NAME.getVar(), SERVER);
+    conf.set(AuthzConfVars.ACCESS_TESTING_MODE.getVar(), "true");
+    OutputStream out = new FileOutputStream(authzSite);
+    try {
+      conf.writeXml(out);
+    } finally {
+      out.close();
+    }
+  }
+}
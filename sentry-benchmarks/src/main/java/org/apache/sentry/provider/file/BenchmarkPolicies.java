@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Generates synthetic policies for the benchmarks. Role i grants select on
+ * table tab{i} of database db{i % databases} and every group holds
+ * {@link #ROLES_PER_GROUP} roles, or as many as given. User user{j} is a
+ * member of group{j}.
+ */
+public final class BenchmarkPolicies {
+  public static final String SERVER = "server1";
+  public static final int ROLES_PER_GROUP = 10;
+  public static final int DATABASES = 10;
+
+  private BenchmarkPolicies() {
+    // utility class
+  }
+
+  public static PolicyFile generate(int roles) {
+    return generate(roles, ROLES_PER_GROUP);
+  }
+
+  public static PolicyFile generate(int roles, int rolesPerGroup) {
+    PolicyFile policyFile = new PolicyFile();
+    int groups = getGroupCount(roles, rolesPerGroup);
+    for (int group = 0; group < groups; group++) {
+      policyFile.addGroupsToUser("user" + group, "group" + group);
+    }
+    for (int role = 0; role < roles; role++) {
+      policyFile.addRolesToGroup("group" + (role / rolesPerGroup), "role" + role)
+        .addPermissionsToRole("role" + role, getPermission(role));
+    }
+    return policyFile;
+  }
+
+  public static int getGroupCount(int roles) {
+    return getGroupCount(roles, ROLES_PER_GROUP);
+  }
+
+  public static int getGroupCount(int roles, int rolesPerGroup) {
+    return Math.max(1, (roles + rolesPerGroup - 1) / rolesPerGroup);
+  }
+
+  public static String getPermission(int role) {
+    return "server=" + SERVER + "->db=db" + (role % DATABASES) +
+        "->table=tab" + role + "->action=select";
+  }
+
+  public static File write(PolicyFile policyFile, File dir) throws IOException {
+    File file = new File(dir, "policy.ini");
+    policyFile.write(file);
+    return file;
+  }
+
+  /**
+   * Write the policy of the given number of roles to dir/policy.ini
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: " + BenchmarkPolicies.class.getName() + " <roles> <dir>");
+      System.exit(1);
+    }
+    File file = write(generate(Integer.parseInt(args[0])), new File(args[1]));
+    System.out.println("Wrote " + file);
+  }
+}
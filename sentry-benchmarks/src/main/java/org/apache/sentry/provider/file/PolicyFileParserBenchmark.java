@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.shiro.config.Ini;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+/**
+ * Shiro's Ini against the streaming parser on policy files of increasing
+ * size, the largest is about 100MB. Both read the file and keep every
+ * section, as SimplePolicyEngine does. Run with -prof gc for the bytes
+ * allocated per parse. The main method parses a policy file written by
+ * {@link BenchmarkPolicies#main(String[])} once and reports the peak and
+ * retained heap. Run it once per parser so each gets a fresh JVM, with
+ * decreasing -Xmx to find the smallest heap the parse fits in:
+ * java -Xmx1g -cp target/benchmarks.jar
+ * org.apache.sentry.provider.file.PolicyFileParserBenchmark ini|policyFileParser &lt;policy file&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PolicyFileParserBenchmark {
+
+  private static final int MB = 1024 * 1024;
+
+  @Param({"1000", "100000", "1500000"})
+  private int roles;
+
+  private File baseDir;
+  private File policyFile;
+
+  /**
+   * Result of the parse measured by main, reachable until it is measured
+   */
+  private static Object parsed;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    baseDir = Files.createTempDir();
+    policyFile = BenchmarkPolicies.write(BenchmarkPolicies.generate(roles), baseDir);
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    if (baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Benchmark
+  public Ini ini() throws IOException {
+    InputStream inputStream = new FileInputStream(policyFile);
+    try {
+      Ini ini = new Ini();
+      ini.load(inputStream);
+      return ini;
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  @Benchmark
+  public Map<String, Map<String, String>> policyFileParser() throws IOException {
+    final Map<String, Map<String, String>> sections = Maps.newHashMap();
+    InputStream inputStream = new FileInputStream(policyFile);
+    try {
+      PolicyFileParser.parse(inputStream, new PolicyFileParser.Handler() {
+        @Override
+        public void section(String name, Map<String, String> entries) {
+          sections.put(name, entries);
+        }
+      });
+    } finally {
+      inputStream.close();
+    }
+    return sections;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2 || !(args[0].equals("ini") || args[0].equals("policyFileParser"))) {
+      System.err.println("Usage: " + PolicyFileParserBenchmark.class.getName() +
+          " ini|policyFileParser <policy file>");
+      System.exit(1);
+    }
+    PolicyFileParserBenchmark benchmark = new PolicyFileParserBenchmark();
+    benchmark.policyFile = new File(args[1]);
+    long before = getUsedHeap();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      pool.resetPeakUsage();
+    }
+    if (args[0].equals("ini")) {
+      parsed = benchmark.ini();
+    } else {
+      parsed = benchmark.policyFileParser();
+    }
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    long retained = getUsedHeap() - before;
+    System.out.println(args[0] + ": file " + benchmark.policyFile.length() / MB +
+        "MB, peak heap " + (peak - before) / MB + "MB, retained " + retained / MB + "MB");
+  }
+
+  private static long getUsedHeap() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+}
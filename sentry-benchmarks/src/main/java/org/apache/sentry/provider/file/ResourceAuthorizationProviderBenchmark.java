@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.sentry.core.Action;
+import org.apache.sentry.core.Authorizable;
+import org.apache.sentry.core.Database;
+import org.apache.sentry.core.Server;
+import org.apache.sentry.core.Subject;
+import org.apache.sentry.core.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+/**
+ * Authorization requests against policies of increasing size. With
+ * oneGroup false the subject holds {@link BenchmarkPolicies#ROLES_PER_GROUP}
+ * roles whatever the size, so only the number of other groups and roles
+ * grows. With oneGroup true a single group holds every role, so the
+ * privileges of the subject grow with the policy and a linear scan over
+ * them would show.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResourceAuthorizationProviderBenchmark {
+  private static final EnumSet<Action> SELECT = EnumSet.of(Action.SELECT);
+
+  @Param({"10", "1000", "100000"})
+  private int roles;
+
+  @Param({"false", "true"})
+  private boolean oneGroup;
+
+  private File baseDir;
+  private ResourceAuthorizationProvider authzProvider;
+  private Subject subject;
+  private List<Authorizable> allowed;
+  private List<Authorizable> denied;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    baseDir = Files.createTempDir();
+    int rolesPerGroup = oneGroup ? roles : BenchmarkPolicies.ROLES_PER_GROUP;
+    File policyFile = BenchmarkPolicies.write(BenchmarkPolicies.generate(roles, rolesPerGroup),
+        baseDir);
+    authzProvider = new LocalGroupResourceAuthorizationProvider(policyFile.getPath(),
+        BenchmarkPolicies.SERVER);
+    // the last group holds the last role
+    int group = BenchmarkPolicies.getGroupCount(roles, rolesPerGroup) - 1;
+    int role = roles - 1;
+    subject = new Subject("user" + group);
+    Server server = new Server(BenchmarkPolicies.SERVER);
+    Database database = new Database("db" + (role % BenchmarkPolicies.DATABASES));
+    allowed = ImmutableList.<Authorizable>of(server, database, new Table("tab" + role));
+    denied = ImmutableList.<Authorizable>of(server, database, new Table("other"));
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    if (baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Benchmark
+  public boolean hasAccessAllowed() {
+    return authzProvider.hasAccess(subject, allowed, SELECT);
+  }
+
+  @Benchmark
+  public boolean hasAccessDenied() {
+    return authzProvider.hasAccess(subject, denied, SELECT);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+
+/**
+ * Role lookups for a group with both global and per database roles
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RolesBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int roles;
+
+  private Roles policyRoles;
+  private String group;
+  private String database;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    ImmutableSetMultimap.Builder<String, String> globalRoles = ImmutableSetMultimap.builder();
+    ImmutableSetMultimap.Builder<String, String> databaseRoles = ImmutableSetMultimap.builder();
+    for (int role = 0; role < roles; role++) {
+      String roleGroup = "group" + (role / BenchmarkPolicies.ROLES_PER_GROUP);
+      globalRoles.put(roleGroup, BenchmarkPolicies.getPermission(role));
+      databaseRoles.put(roleGroup, "server=" + BenchmarkPolicies.SERVER +
+          "->db=db0->table=dbtab" + role + "->action=select");
+    }
+    policyRoles = new Roles(globalRoles.build(),
+        ImmutableMap.of("db0", databaseRoles.build()));
+    group = "group" + (BenchmarkPolicies.getGroupCount(roles) - 1);
+    database = "db0";
+  }
+
+  @Benchmark
+  public Set<String> getRoles() {
+    return policyRoles.getRoles(database, group, false);
+  }
+
+  @Benchmark
+  public Set<String> getGlobalRoles() {
+    return policyRoles.getRoles(null, group, false);
+  }
+}
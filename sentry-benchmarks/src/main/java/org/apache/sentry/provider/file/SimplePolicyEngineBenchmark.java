@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.io.Files;
+
+/**
+ * Full parse of policy files of increasing size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimplePolicyEngineBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int roles;
+
+  private File baseDir;
+  private SimplePolicyEngine policy;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    baseDir = Files.createTempDir();
+    File policyFile = BenchmarkPolicies.write(BenchmarkPolicies.generate(roles), baseDir);
+    policy = new SimplePolicyEngine(policyFile.getPath(), BenchmarkPolicies.SERVER);
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    if (policy != null) {
+      policy.close();
+    }
+    if (baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Benchmark
+  public long parse() {
+    policy.parse();
+    return policy.getGeneration();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing privileges and matching requests against them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WildcardPermissionBenchmark {
+  private static final String POLICY = "server=server1->db=db1->table=*->action=select";
+  private static final String REQUEST = "server=server1->db=db1->table=tab1->action=select";
+  private static final String OTHER_REQUEST = "server=server1->db=db2->table=tab1->action=select";
+  private static final String POLICY_URI = "hdfs://namenode:8020/path/to/uri";
+  private static final String REQUEST_URI = "hdfs://namenode:8020/path/to/uri/some/file";
+  private static final String OTHER_REQUEST_URI = "hdfs://namenode:8020/path/to/other/file";
+
+  private final WildcardPermission policy = new WildcardPermission(POLICY);
+  private final WildcardPermission request = new WildcardPermission(REQUEST);
+  private final WildcardPermission otherRequest = new WildcardPermission(OTHER_REQUEST);
+
+  @Benchmark
+  public WildcardPermission construct() {
+    return new WildcardPermission(REQUEST);
+  }
+
+  @Benchmark
+  public boolean implies() {
+    return policy.implies(request);
+  }
+
+  @Benchmark
+  public boolean impliesMismatch() {
+    return policy.implies(otherRequest);
+  }
+
+  @Benchmark
+  public boolean impliesURI() {
+    return WildcardPermission.impliesURI(POLICY_URI, REQUEST_URI);
+  }
+
+  @Benchmark
+  public boolean impliesURIMismatch() {
+    return WildcardPermission.impliesURI(POLICY_URI, OTHER_REQUEST_URI);
+  }
+}
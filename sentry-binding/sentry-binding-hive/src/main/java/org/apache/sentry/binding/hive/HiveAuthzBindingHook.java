@@ -26,6 +26,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.CodeSource;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
@@ -55,6 +56,7 @@ import org.apache.hadoop.hive.ql.parse.SemanticException;
 import org.apache.hadoop.hive.ql.plan.HiveOperation;
 import org.apache.hadoop.hive.ql.session.SessionState;
 import org.apache.sentry.binding.hive.authz.HiveAuthzBinding;
+import org.apache.sentry.binding.hive.authz.HiveAuthzBindingRegistry;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationScope;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationType;
@@ -64,6 +66,7 @@ import org.apache.sentry.core.AccessURI;
 import org.apache.sentry.core.Action;
 import org.apache.sentry.core.Authorizable;
 import org.apache.sentry.core.Authorizable.AuthorizableType;
+import org.apache.sentry.core.AuthorizableInterner;
 import org.apache.sentry.core.Database;
 import org.apache.sentry.core.Subject;
 import org.apache.sentry.core.Table;
@@ -105,8 +108,9 @@ implements HiveDriverFilterHook {
       throw new IllegalArgumentException("Configuration key " + HiveAuthzConf.HIVE_SENTRY_CONF_URL
           + " value '" + hiveAuthzConf + "' is invalid.");
     }
+    URL authzSiteURL;
     try {
-      authzConf = new HiveAuthzConf(new URL(hiveAuthzConf));
+      authzSiteURL = new URL(hiveAuthzConf);
     } catch (MalformedURLException e) {
       if (depreicatedConfigFile) {
         throw new IllegalArgumentException("Configuration key " + HiveAuthzConf.HIVE_ACCESS_CONF_URL
@@ -116,7 +120,8 @@ implements HiveDriverFilterHook {
             + " specifies a malformed URL '" + hiveAuthzConf + "'", e);
       }
     }
-    hiveAuthzBinding = new HiveAuthzBinding(hiveConf, authzConf);
+    hiveAuthzBinding = HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL);
+    authzConf = hiveAuthzBinding.getAuthzConf();
   }
 
   /**
@@ -450,8 +455,6 @@ implements HiveDriverFilterHook {
     // validate permission
     hiveAuthzBinding.authorize(stmtOperation, stmtAuthObject, getCurrentSubject(context),
         inputHierarchy, outputHierarchy);
-
-    hiveAuthzBinding.set(context.getConf());
   }
 
   private boolean isBuiltinUDF(ReadEntity readEntity) {
@@ -488,16 +491,21 @@ implements HiveDriverFilterHook {
   }
 
   // Build the hierarchy of authorizable object for the given entity type.
+  // The same tables appear in many queries so their authorizables are interned.
   private List<Authorizable> getAuthzHierarchyFromEntity(Entity entity) {
     List<Authorizable> objectHierarchy = new ArrayList<Authorizable>();
     switch (entity.getType()) {
     case TABLE:
-      objectHierarchy.add(new Database(entity.getTable().getDbName()));
-      objectHierarchy.add(new Table(entity.getTable().getTableName()));
+      objectHierarchy.add(AuthorizableInterner.intern(Database.class,
+          entity.getTable().getDbName()));
+      objectHierarchy.add(AuthorizableInterner.intern(Table.class,
+          entity.getTable().getTableName()));
       break;
     case PARTITION:
-      objectHierarchy.add(new Database(entity.getPartition().getTable().getDbName()));
-      objectHierarchy.add(new Table(entity.getPartition().getTable().getTableName()));
+      objectHierarchy.add(AuthorizableInterner.intern(Database.class,
+          entity.getPartition().getTable().getDbName()));
+      objectHierarchy.add(AuthorizableInterner.intern(Table.class,
+          entity.getPartition().getTable().getTableName()));
       break;
     case DFS_DIR:
     case LOCAL_DIR:
@@ -547,38 +555,20 @@ implements HiveDriverFilterHook {
   private List<String> filterShowTables(List<String> queryResult,
       HiveOperation operation, String userName, String dbName)
           throws SemanticException {
-    List<String> filteredResult = new ArrayList<String>();
-    Subject subject = new Subject(userName);
-    HiveAuthzPrivileges tableMetaDataPrivilege = new HiveAuthzPrivileges.AuthzPrivilegeBuilder().
-        addInputObjectPriviledge(AuthorizableType.Table, EnumSet.of(Action.SELECT, Action.INSERT)).
-        setOperationScope(HiveOperationScope.TABLE).
-        setOperationType(HiveOperationType.INFO).
-        build();
-
+    // if user has privileges on table, add to filtered list, else discard
+    List<Table> tables = new ArrayList<Table>(queryResult.size());
     for (String tableName : queryResult) {
-      // if user has privileges on table, add to filtered list, else discard
-      Table table = new Table(tableName);
-      Database database;
-      database = new Database(dbName);
-
-      List<List<Authorizable>> inputHierarchy = new ArrayList<List<Authorizable>>();
-      List<List<Authorizable>> outputHierarchy = new ArrayList<List<Authorizable>>();
-      List<Authorizable> externalAuthorizableHierarchy = new ArrayList<Authorizable>();
-      externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
-      externalAuthorizableHierarchy.add(table);
-      inputHierarchy.add(externalAuthorizableHierarchy);
-
-      try {
-        hiveAuthzBinding.authorize(operation, tableMetaDataPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(table.getName());
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
-        ;
-      }
+      tables.add(new Table(tableName));
+    }
+    List<Authorizable> parentHierarchy = new ArrayList<Authorizable>();
+    parentHierarchy.add(hiveAuthzBinding.getAuthServer());
+    parentHierarchy.add(new Database(dbName));
+    BitSet allowed = hiveAuthzBinding.authorize(new Subject(userName), parentHierarchy,
+        tables, EnumSet.of(Action.SELECT, Action.INSERT));
+
+    List<String> filteredResult = new ArrayList<String>(allowed.cardinality());
+    for (int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) {
+      filteredResult.add(tables.get(i).getName());
     }
     return filteredResult;
   }
@@ -616,15 +606,9 @@ implements HiveDriverFilterHook {
       externalAuthorizableHierarchy.add(Table.ALL);
       inputHierarchy.add(externalAuthorizableHierarchy);
 
-      try {
-        hiveAuthzBinding.authorize(operation, anyPrivilege, subject,
-            inputHierarchy, outputHierarchy);
+      if (hiveAuthzBinding.checkPrivileges(operation, anyPrivilege, subject,
+          inputHierarchy, outputHierarchy).isAllowed()) {
         filteredResult.add(database.getName());
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
-        ;
       }
     }
 
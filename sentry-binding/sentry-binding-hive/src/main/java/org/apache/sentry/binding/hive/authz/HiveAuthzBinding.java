@@ -16,11 +16,14 @@
  */
 package org.apache.sentry.binding.hive.authz;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
@@ -42,15 +45,22 @@ import org.apache.sentry.core.Authorizable.AuthorizableType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 
 public class HiveAuthzBinding {
   private static final Logger LOG = LoggerFactory
       .getLogger(HiveAuthzBinding.class);
-  private static final Map<String, HiveAuthzBinding> authzBindingMap =
-      new ConcurrentHashMap<String, HiveAuthzBinding>();
+  // Keyed weakly on the configuration of the query, so the binding of a
+  // query which waits long before it is executed is still found and the
+  // entry goes away with the configuration whether or not the pre-exec
+  // hook calls clear(). Guarded by itself.
+  private static final Map<Configuration, HiveAuthzBinding> authzBindingMap =
+      new WeakHashMap<Configuration, HiveAuthzBinding>();
   private static final AtomicInteger queryID = new AtomicInteger();
   public static final String HIVE_BINDING_TAG = "hive.authz.bindings.tag";
+  private static final String CACHING_AUTHZ_PROVIDER =
+      "org.apache.sentry.provider.file.CachingAuthorizationProvider";
 
   private final HiveAuthzConf authzConf;
   private final Server authServer;
@@ -62,17 +72,32 @@ public class HiveAuthzBinding {
     this.authProvider = getAuthProvider(hiveConf, authServer.getName());
   }
 
+  public HiveAuthzConf getAuthzConf() {
+    return authzConf;
+  }
+
+  /**
+   * Stop the background work of the authorization provider, e.g. policy
+   * reloading, if it has any. Privileges can still be checked afterwards.
+   */
+  public void close() {
+    if (authProvider instanceof Closeable) {
+      try {
+        ((Closeable) authProvider).close();
+      } catch (IOException e) {
+        LOG.warn("Error closing " + authProvider, e);
+      }
+    }
+  }
+
   /**
    * Retrieve the HiveAuthzBinding if the tag is saved in the given configuration
    * @param conf
    * @return HiveAuthzBinding or null
    */
   public static HiveAuthzBinding get(Configuration conf) {
-    String tagName = conf.get(HIVE_BINDING_TAG);
-    if (tagName == null) {
-      return null;
-    } else {
-      return authzBindingMap.get(tagName);
+    synchronized (authzBindingMap) {
+      return authzBindingMap.get(conf);
     }
   }
 
@@ -82,7 +107,9 @@ public class HiveAuthzBinding {
    */
   public void set (Configuration conf) {
     String tagName = SessionState.get().getSessionId() + "_" + queryID.incrementAndGet();
-    authzBindingMap.put(tagName, this);
+    synchronized (authzBindingMap) {
+      authzBindingMap.put(conf, this);
+    }
     conf.set(HIVE_BINDING_TAG, tagName);
   }
 
@@ -91,9 +118,25 @@ public class HiveAuthzBinding {
    * @param conf
    */
   public void clear(Configuration conf) {
-    String tagName = conf.get(HIVE_BINDING_TAG);
-    if (tagName == null) {
-      authzBindingMap.remove(tagName);
+    synchronized (authzBindingMap) {
+      authzBindingMap.remove(conf);
+    }
+  }
+
+  /**
+   * @return number of tags currently registered by {@link #set(Configuration)}
+   * whose configuration is still referenced
+   */
+  public static long getBindingTagCount() {
+    synchronized (authzBindingMap) {
+      return authzBindingMap.size();
+    }
+  }
+
+  @VisibleForTesting
+  public static void clearBindingTags() {
+    synchronized (authzBindingMap) {
+      authzBindingMap.clear();
     }
   }
 
@@ -133,7 +176,22 @@ public class HiveAuthzBinding {
     Constructor<?> constrctor =
         Class.forName(authProviderName).getDeclaredConstructor(String.class, String.class);
     constrctor.setAccessible(true);
-    return (AuthorizationProvider) constrctor.newInstance(new Object[] {resourceName, serverName});
+    AuthorizationProvider authProvider =
+        (AuthorizationProvider) constrctor.newInstance(new Object[] {resourceName, serverName});
+
+    // optionally cache the decisions of the provider
+    long cacheSize = Long.parseLong(Strings.nullToEmpty(
+        authzConf.get(AuthzConfVars.AUTHZ_PROVIDER_CACHE_SIZE.getVar())).trim());
+    if(cacheSize > 0) {
+      long cacheTTL = Long.parseLong(Strings.nullToEmpty(
+          authzConf.get(AuthzConfVars.AUTHZ_PROVIDER_CACHE_TTL_MS.getVar())).trim());
+      LOG.debug("Caching authorization decisions, size " + cacheSize + ", ttl " + cacheTTL + "ms");
+      Constructor<?> cachingConstructor = Class.forName(CACHING_AUTHZ_PROVIDER)
+          .getDeclaredConstructor(AuthorizationProvider.class, long.class, long.class);
+      authProvider = (AuthorizationProvider) cachingConstructor
+          .newInstance(new Object[] {authProvider, cacheSize, cacheTTL});
+    }
+    return authProvider;
   }
 
 
@@ -150,6 +208,30 @@ public class HiveAuthzBinding {
   public void authorize(HiveOperation hiveOp, HiveAuthzPrivileges stmtAuthPrivileges,
       Subject subject, List<List<Authorizable>> inputHierarchyList, List<List<Authorizable>> outputHierarchyList )
           throws AuthorizationException {
+    HiveAuthzDecision decision = checkPrivileges(hiveOp, stmtAuthPrivileges, subject,
+        inputHierarchyList, outputHierarchyList);
+    if (!decision.isAllowed()) {
+      if (decision.isOutput()) {
+        throw new AuthorizationException("User " + subject.getName() +
+            " does not have priviliedges for " + hiveOp.name());
+      }
+      throw new AuthorizationException("User " + subject.getName() +
+          " does not have privileges for " + hiveOp.name());
+    }
+  }
+
+  /**
+   * Validate the privilege for the given operation for the given subject
+   * without throwing an exception when access is denied
+   * @param hiveOp
+   * @param stmtAuthPrivileges
+   * @param subject
+   * @param inputHierarchyList
+   * @param outputHierarchyList
+   * @return the decision, including the first hierarchy which failed if access is denied
+   */
+  public HiveAuthzDecision checkPrivileges(HiveOperation hiveOp, HiveAuthzPrivileges stmtAuthPrivileges,
+      Subject subject, List<List<Authorizable>> inputHierarchyList, List<List<Authorizable>> outputHierarchyList) {
     boolean isDebug = LOG.isDebugEnabled();
     if(isDebug) {
       LOG.debug("Going to authorize statement " + hiveOp.name() +
@@ -177,8 +259,7 @@ public class HiveAuthzBinding {
           EnumSet<Action> inputPrivSet =
             requiredInputPrivileges.get(getAuthzType(inputHierarchy));
           if (!authProvider.hasAccess(subject, inputHierarchy, inputPrivSet)) {
-            throw new AuthorizationException("User " + subject.getName() +
-                " does not have privileges for " + hiveOp.name());
+            return HiveAuthzDecision.deniedInput(inputHierarchy, inputPrivSet);
           }
         }
       }
@@ -195,11 +276,30 @@ public class HiveAuthzBinding {
           EnumSet<Action> outputPrivSet =
             requiredOutputPrivileges.get(getAuthzType(outputHierarchy));
           if (!authProvider.hasAccess(subject, outputHierarchy, outputPrivSet)) {
-            throw new AuthorizationException("User " + subject.getName() +
-                " does not have priviliedges for " + hiveOp.name());
+            return HiveAuthzDecision.deniedOutput(outputHierarchy, outputPrivSet);
           }
         }
       }
+      return HiveAuthzDecision.ALLOWED;
+  }
+
+  /**
+   * Validate the given actions on many children of the same parent, eg. all
+   * the tables of a database, in one call. Unlike authorize this does not
+   * signal a denial with an exception.
+   * @param subject
+   * @param parentHierarchy
+   * @param children
+   * @param actions
+   * @return bit i is set if the subject has any of the actions on child i
+   */
+  public BitSet authorize(Subject subject, List<Authorizable> parentHierarchy,
+      List<? extends Authorizable> children, EnumSet<Action> actions) {
+    if(LOG.isDebugEnabled()) {
+      LOG.debug("Going to authorize " + children.size() + " children of " +
+          parentHierarchy + " for subject " + subject.getName());
+    }
+    return authProvider.hasAccess(subject, parentHierarchy, children, actions);
   }
 
   public Server getAuthServer() {
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.binding.hive.authz;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
+import org.apache.sentry.binding.hive.conf.HiveAuthzConf.AuthzConfVars;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+
+/**
+ * Process wide registry of {@link HiveAuthzBinding}s so that the
+ * configuration and policy are not read and parsed again for each query.
+ * Bindings are only shared when hive.sentry.binding.shared is enabled in
+ * the sentry-site. A shared binding is keyed by the sentry-site URL, which
+ * determines the server name, and the HiveServer2 settings the binding
+ * depends on. It is replaced when the sentry-site file is modified and the
+ * replaced binding is closed. Changes to the policy files are not detected
+ * here and should be picked up by the provider reloading them in the
+ * background.
+ */
+public class HiveAuthzBindingRegistry {
+  private static final Logger LOG = LoggerFactory
+      .getLogger(HiveAuthzBindingRegistry.class);
+  private static final Joiner KEY_JOINER = Joiner.on('\u0000').useForNull("");
+  private static final ConcurrentMap<String, SharedBinding> sharedBindings =
+      new ConcurrentHashMap<String, SharedBinding>();
+
+  private HiveAuthzBindingRegistry() {
+    // no instances
+  }
+
+  /**
+   * Get the shared binding for the given configurations or create a new
+   * one if sharing is not enabled.
+   */
+  public static HiveAuthzBinding getBinding(HiveConf hiveConf, URL authzSiteURL)
+      throws Exception {
+    String key = getKey(hiveConf, authzSiteURL);
+    long modificationTime = getModificationTime(authzSiteURL);
+    SharedBinding sharedBinding = sharedBindings.get(key);
+    if(sharedBinding != null && sharedBinding.modificationTime == modificationTime) {
+      return sharedBinding.binding;
+    }
+    HiveAuthzConf authzConf = new HiveAuthzConf(authzSiteURL);
+    boolean shared = Boolean.parseBoolean(Strings.nullToEmpty(
+        authzConf.get(AuthzConfVars.AUTHZ_BINDING_SHARED.getVar())).trim());
+    if(!shared) {
+      if(sharedBinding != null && sharedBindings.remove(key, sharedBinding)) {
+        sharedBinding.binding.close();
+      }
+      return new HiveAuthzBinding(hiveConf, authzConf);
+    }
+    // only one thread reads the policy, the others wait for it
+    synchronized (sharedBindings) {
+      sharedBinding = sharedBindings.get(key);
+      if(sharedBinding == null || sharedBinding.modificationTime != modificationTime) {
+        LOG.info("Creating shared binding for " + authzSiteURL);
+        SharedBinding replaced = sharedBinding;
+        sharedBinding = new SharedBinding(new HiveAuthzBinding(hiveConf, authzConf),
+            modificationTime);
+        sharedBindings.put(key, sharedBinding);
+        if(replaced != null) {
+          // queries holding the replaced binding can still use it
+          replaced.binding.close();
+        }
+      }
+      return sharedBinding.binding;
+    }
+  }
+
+  private static String getKey(HiveConf hiveConf, URL authzSiteURL) {
+    return KEY_JOINER.join(authzSiteURL.toExternalForm(),
+        hiveConf.getVar(ConfVars.HIVE_SERVER2_AUTHENTICATION),
+        hiveConf.getBoolVar(ConfVars.HIVE_SERVER2_KERBEROS_IMPERSONATION),
+        hiveConf.get(CommonConfigurationKeys.FS_PERMISSIONS_UMASK_KEY));
+  }
+
+  /**
+   * Modification time of the sentry-site if it is a local file, otherwise
+   * zero as there is no cheap way to find out if it has changed.
+   */
+  private static long getModificationTime(URL authzSiteURL) {
+    if("file".equalsIgnoreCase(authzSiteURL.getProtocol())) {
+      try {
+        return new File(authzSiteURL.toURI()).lastModified();
+      } catch (URISyntaxException e) {
+        LOG.warn("Unable to convert " + authzSiteURL + " to a file", e);
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Unable to convert " + authzSiteURL + " to a file", e);
+      }
+    }
+    return 0L;
+  }
+
+  private static class SharedBinding {
+    private final HiveAuthzBinding binding;
+    private final long modificationTime;
+
+    SharedBinding(HiveAuthzBinding binding, long modificationTime) {
+      this.binding = binding;
+      this.modificationTime = modificationTime;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.binding.hive.authz;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.sentry.core.Action;
+import org.apache.sentry.core.Authorizable;
+
+/**
+ * Result of validating the privileges of a statement. When access is denied
+ * it records the first hierarchy which failed and the privileges required on it.
+ */
+public class HiveAuthzDecision {
+
+  public static final HiveAuthzDecision ALLOWED = new HiveAuthzDecision(null, null, false);
+
+  private final List<Authorizable> failedHierarchy;
+  private final EnumSet<Action> requiredPrivileges;
+  private final boolean output;
+
+  private HiveAuthzDecision(List<Authorizable> failedHierarchy,
+      EnumSet<Action> requiredPrivileges, boolean output) {
+    this.failedHierarchy = failedHierarchy;
+    this.requiredPrivileges = requiredPrivileges;
+    this.output = output;
+  }
+
+  static HiveAuthzDecision deniedInput(List<Authorizable> hierarchy, EnumSet<Action> privileges) {
+    return new HiveAuthzDecision(hierarchy, privileges, false);
+  }
+
+  static HiveAuthzDecision deniedOutput(List<Authorizable> hierarchy, EnumSet<Action> privileges) {
+    return new HiveAuthzDecision(hierarchy, privileges, true);
+  }
+
+  public boolean isAllowed() {
+    return failedHierarchy == null;
+  }
+
+  /**
+   * @return the hierarchy on which access was denied, null if allowed
+   */
+  public List<Authorizable> getFailedHierarchy() {
+    return failedHierarchy;
+  }
+
+  /**
+   * @return the privileges which were required on the failed hierarchy, null if allowed
+   */
+  public EnumSet<Action> getRequiredPrivileges() {
+    return requiredPrivileges == null ? null : EnumSet.copyOf(requiredPrivileges);
+  }
+
+  /**
+   * @return true if the failed hierarchy is an output of the statement
+   */
+  public boolean isOutput() {
+    return output;
+  }
+
+  @Override
+  public String toString() {
+    if (isAllowed()) {
+      return "HiveAuthzDecision [allowed]";
+    }
+    return "HiveAuthzDecision [denied " + (output ? "output " : "input ") +
+        failedHierarchy + " requires " + requiredPrivileges + "]";
+  }
+}
@@ -50,6 +50,9 @@ public class HiveAuthzConf extends Configuration {
         AUTHZ_UDF_WHITELIST("hive.sentry.udf.whitelist", HIVE_UDF_WHITE_LIST),
         AUTHZ_ALLOW_HIVE_IMPERSONATION("hive.sentry.allow.hive.impersonation", "false"),
         AUTHZ_ONFAILURE_HOOKS("hive.sentry.failure.hooks", ""),
+        AUTHZ_PROVIDER_CACHE_SIZE("hive.sentry.provider.cache.size", "0"),
+        AUTHZ_PROVIDER_CACHE_TTL_MS("hive.sentry.provider.cache.ttl.ms", "60000"),
+        AUTHZ_BINDING_SHARED("hive.sentry.binding.shared", "false"),
 
         AUTHZ_PROVIDER_DEPRECATED("hive.access.provider",
         "org.apache.sentry.provider.file.ResourceAuthorizationProvider"),
@@ -19,11 +19,11 @@ package org.apache.sentry.binding.hive;
 
 import java.util.List;
 
-import org.apache.sentry.provider.file.GroupMappingService;
+import org.apache.sentry.provider.file.AbstractGroupMappingService;
 
 import com.google.common.collect.Lists;
 
-public class MockUserToGroupMapping implements GroupMappingService {
+public class MockUserToGroupMapping extends AbstractGroupMappingService {
 
   // User to group 1-to-1 map
   @Override
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.binding.hive;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.apache.sentry.binding.hive.authz.HiveAuthzBinding;
+import org.apache.sentry.binding.hive.authz.HiveAuthzBindingRegistry;
+import org.apache.sentry.binding.hive.conf.HiveAuthzConf.AuthzConfVars;
+import org.apache.sentry.provider.file.PolicyFiles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+public class TestHiveAuthzBindingRegistry {
+  private static final String RESOURCE_PATH = "test-authz-provider.ini";
+
+  private File baseDir;
+  private File authzSite;
+  private URL authzSiteURL;
+  private HiveConf hiveConf;
+
+  @Before
+  public void setUp() throws Exception {
+    baseDir = Files.createTempDir();
+    PolicyFiles.copyToDir(baseDir, RESOURCE_PATH);
+    authzSite = new File(baseDir, "sentry-site.xml");
+    authzSiteURL = authzSite.toURI().toURL();
+    hiveConf = new HiveConf();
+  }
+
+  @After
+  public void teardown() {
+    if(baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Test
+  public void testNotShared() throws Exception {
+    writeAuthzSite(false);
+    Assert.assertNotSame(HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL),
+        HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL));
+  }
+
+  @Test
+  public void testShared() throws Exception {
+    writeAuthzSite(true);
+    HiveAuthzBinding binding = HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL);
+    Assert.assertSame(binding, HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL));
+    Assert.assertEquals("server1", binding.getAuthServer().getName());
+
+    // a different hive configuration gets a different binding
+    HiveConf otherHiveConf = new HiveConf();
+    otherHiveConf.setVar(ConfVars.HIVE_SERVER2_AUTHENTICATION, "Kerberos");
+    Assert.assertNotSame(binding, HiveAuthzBindingRegistry.getBinding(otherHiveConf, authzSiteURL));
+    Assert.assertSame(binding, HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL));
+  }
+
+  @Test
+  public void testModifiedAuthzSite() throws Exception {
+    writeAuthzSite(true);
+    HiveAuthzBinding binding = HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL);
+    long modificationTime = authzSite.lastModified();
+    writeAuthzSite(true);
+    Assert.assertTrue(authzSite.setLastModified(modificationTime + 2000L));
+    HiveAuthzBinding newBinding = HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL);
+    Assert.assertNotSame(binding, newBinding);
+    Assert.assertSame(newBinding, HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL));
+
+    // disabling sharing stops returning the shared binding
+    writeAuthzSite(false);
+    Assert.assertTrue(authzSite.setLastModified(modificationTime + 4000L));
+    Assert.assertNotSame(newBinding, HiveAuthzBindingRegistry.getBinding(hiveConf, authzSiteURL));
+  }
+
+  private void writeAuthzSite(boolean shared) throws IOException {
+    Configuration conf = new Configuration(false);
+    conf.set(AuthzConfVars.AUTHZ_PROVIDER.getVar(),
+        "org.apache.sentry.provider.file.LocalGroupResourceAuthorizationProvider");
+    conf.set(AuthzConfVars.AUTHZ_PROVIDER_RESOURCE.getVar(),
+        new File(baseDir, RESOURCE_PATH).getPath());
+    conf.set(AuthzConfVars.AUTHZ_SERVER_NAME.getVar(), "server1");
+    conf.set(AuthzConfVars.ACCESS_TESTING_MODE.getVar(), "true");
+    conf.set(AuthzConfVars.AUTHZ_BINDING_SHARED.getVar(), String.valueOf(shared));
+    OutputStream out = new FileOutputStream(authzSite);
+    try {
+      conf.writeXml(out);
+    } finally {
+      out.close();
+    }
+  }
+}
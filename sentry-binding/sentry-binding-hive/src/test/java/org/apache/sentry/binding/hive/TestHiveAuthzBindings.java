@@ -19,20 +19,28 @@ package org.apache.sentry.binding.hive;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
 import java.util.List;
 
+import junit.framework.Assert;
+
 import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
 import org.apache.hadoop.hive.ql.metadata.AuthorizationException;
 import org.apache.hadoop.hive.ql.plan.HiveOperation;
+import org.apache.hadoop.hive.ql.session.SessionState;
 import org.apache.sentry.binding.hive.authz.HiveAuthzBinding;
+import org.apache.sentry.binding.hive.authz.HiveAuthzDecision;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivilegesMap;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf.AuthzConfVars;
 import org.apache.sentry.core.AccessConstants;
 import org.apache.sentry.core.AccessURI;
+import org.apache.sentry.core.Action;
 import org.apache.sentry.core.Authorizable;
 import org.apache.sentry.core.Database;
 import org.apache.sentry.core.Server;
@@ -113,6 +121,7 @@ public class TestHiveAuthzBindings {
 
   @After
   public void teardown() {
+    HiveAuthzBinding.clearBindingTags();
     if(baseDir != null) {
       FileUtils.deleteQuietly(baseDir);
     }
@@ -316,6 +325,71 @@ public class TestHiveAuthzBindings {
         inputTabHierarcyList, outputTabHierarcyList);
   }
 
+  /**
+   * Enable the decision cache and make sure both positive and
+   * negative decisions are the same when served from the cache.
+   */
+  @Test(expected=AuthorizationException.class)
+  public void testCachedDecisions() throws Exception {
+    authzConf.set(AuthzConfVars.AUTHZ_PROVIDER_CACHE_SIZE.getVar(), "10");
+    testAuth = new HiveAuthzBinding(hiveConf, authzConf);
+
+    inputTabHierarcyList.add(buildObjectHierarchy(SERVER1, CUSTOMER_DB, PURCHASES_TAB));
+    for (int i = 0; i < 2; i++) {
+      testAuth.authorize(HiveOperation.QUERY, queryPrivileges, ANALYST_SUBJECT,
+          inputTabHierarcyList, outputTabHierarcyList);
+    }
+    try {
+      testAuth.authorize(HiveOperation.QUERY, queryPrivileges, JUNIOR_ANALYST_SUBJECT,
+          inputTabHierarcyList, outputTabHierarcyList);
+      Assert.fail("Expected AuthorizationException");
+    } catch (AuthorizationException e) {
+      // expected
+    }
+    testAuth.authorize(HiveOperation.QUERY, queryPrivileges, JUNIOR_ANALYST_SUBJECT,
+        inputTabHierarcyList, outputTabHierarcyList);
+  }
+
+  /**
+   * validate the decision returned for a denied statement
+   */
+  @Test
+  public void testCheckPrivileges() throws Exception {
+    List<Authorizable> allowedHierarchy = buildObjectHierarchy(SERVER1, JUNIOR_ANALYST_DB, PURCHASES_TAB);
+    List<Authorizable> deniedHierarchy = buildObjectHierarchy(SERVER1, CUSTOMER_DB, PURCHASES_TAB);
+    inputTabHierarcyList.add(allowedHierarchy);
+    Assert.assertTrue(testAuth.checkPrivileges(HiveOperation.QUERY, queryPrivileges,
+        JUNIOR_ANALYST_SUBJECT, inputTabHierarcyList, outputTabHierarcyList).isAllowed());
+
+    inputTabHierarcyList.add(deniedHierarchy);
+    HiveAuthzDecision decision = testAuth.checkPrivileges(HiveOperation.QUERY, queryPrivileges,
+        JUNIOR_ANALYST_SUBJECT, inputTabHierarcyList, outputTabHierarcyList);
+    Assert.assertFalse(decision.isAllowed());
+    Assert.assertFalse(decision.isOutput());
+    Assert.assertEquals(deniedHierarchy, decision.getFailedHierarchy());
+    Assert.assertEquals(EnumSet.of(Action.SELECT), decision.getRequiredPrivileges());
+  }
+
+  /**
+   * validate the batch authorization of the tables of a database
+   */
+  @Test
+  public void testBatchAuthorize() throws Exception {
+    List<Table> tables = Arrays.asList(new Table(PURCHASES_TAB), new Table(PAYMENT_TAB));
+    EnumSet<Action> anyAccess = EnumSet.of(Action.SELECT, Action.INSERT);
+    BitSet expected = new BitSet();
+    expected.set(0);
+    Assert.assertEquals(expected, testAuth.authorize(ANALYST_SUBJECT,
+        buildObjectHierarchy(SERVER1, CUSTOMER_DB, null), tables, anyAccess));
+    Assert.assertEquals(new BitSet(), testAuth.authorize(JUNIOR_ANALYST_SUBJECT,
+        buildObjectHierarchy(SERVER1, CUSTOMER_DB, null), tables, anyAccess));
+    expected.set(1);
+    Assert.assertEquals(expected, testAuth.authorize(ADMIN_SUBJECT,
+        buildObjectHierarchy(SERVER1, CUSTOMER_DB, null), tables, anyAccess));
+    Assert.assertEquals(expected, testAuth.authorize(JUNIOR_ANALYST_SUBJECT,
+        buildObjectHierarchy(SERVER1, JUNIOR_ANALYST_DB, null), tables, anyAccess));
+  }
+
   private List <Authorizable>  buildObjectHierarchy(String server, String db, String table) {
     List <Authorizable> authList = new ArrayList<Authorizable> ();
     authList.add(new Server(server));
@@ -327,4 +401,32 @@ public class TestHiveAuthzBindings {
     }
     return authList;
   }
+
+  /**
+   * Tags are removed by clear and, for queries which never reach the
+   * pre-exec hook, with the configuration of the query
+   */
+  @Test
+  public void testBindingTagsAreCleared() throws Exception {
+    SessionState.start(new HiveConf());
+    Configuration clearedConf = new Configuration(false);
+    testAuth.set(clearedConf);
+    Assert.assertSame(testAuth, HiveAuthzBinding.get(clearedConf));
+    testAuth.clear(clearedConf);
+    Assert.assertNull(HiveAuthzBinding.get(clearedConf));
+
+    // the tag of a query waiting to be executed is kept
+    Configuration pendingConf = new Configuration(false);
+    testAuth.set(pendingConf);
+    for (int i = 0; i < 100000; i++) {
+      testAuth.set(new Configuration(false));
+    }
+    Assert.assertSame(testAuth, HiveAuthzBinding.get(pendingConf));
+    for (int i = 0; i < 10 && HiveAuthzBinding.getBindingTagCount() > 1; i++) {
+      System.gc();
+      Thread.sleep(100L);
+    }
+    Assert.assertEquals(1, HiveAuthzBinding.getBindingTagCount());
+    Assert.assertSame(testAuth, HiveAuthzBinding.get(pendingConf));
+  }
 }
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core;
+
+/**
+ * Base of the authorizables with value semantics. Two authorizables are
+ * equal if they are of the same class and have the same name. The
+ * canonical form and the hash code are computed once so hierarchies of authorizables are cheap to use as map keys.
+ */
+public abstract class AbstractAuthorizable implements Authorizable {
+
+  private final AuthorizableType authzType;
+  private final String name;
+  private final String canonicalName;
+  private final int hashCode;
+
+  protected AbstractAuthorizable(AuthorizableType authzType, String name) {
+    this.authzType = authzType;
+    this.name = name;
+    this.canonicalName = authzType.name() + "=" + (name == null ? "" : name);
+    this.hashCode = getClass().hashCode() * 31 + (name == null ? 0 : name.hashCode());
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public AuthorizableType getAuthzType() {
+    return authzType;
+  }
+
+  /**
+   * @return type and name in the form type=name, an empty name
+   * if the name is null
+   */
+  public String getCanonicalName() {
+    return canonicalName;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || obj.getClass() != getClass()) {
+      return false;
+    }
+    AbstractAuthorizable other = (AbstractAuthorizable) obj;
+    return hashCode == other.hashCode &&
+        (name == null ? other.name == null : name.equals(other.name));
+  }
+}
@@ -16,38 +16,28 @@
  */
 package org.apache.sentry.core;
 
-public class AccessURI implements Authorizable {
+public class AccessURI extends AbstractAuthorizable {
   /**
    * Represents all URIs
    */
   public static final AccessURI ALL = new AccessURI(AccessConstants.ALL);
 
-  private final String uriName;
-
-
   public AccessURI(String uriName) {
-    uriName = uriName == null ? "" : uriName;
+    super(AuthorizableType.URI, validate(uriName == null ? "" : uriName));
+  }
+
+  private static String validate(String uriName) {
     if(!(uriName.equals(AccessConstants.ALL) || 
         uriName.startsWith("file://") ||
         uriName.startsWith("hdfs://"))) {
       throw new IllegalArgumentException("URI '" + uriName + "' in invalid. Must start with file:// or hdfs://");      
     }
-    this.uriName = uriName;
-  }
-
-  @Override
-  public String getName() {
     return uriName;
   }
 
-  @Override
-  public AuthorizableType getAuthzType() {
-    return AuthorizableType.URI;
-  }
-
   @Override
   public String toString() {
-    return "URI [name=" + uriName + "]";
+    return "URI [name=" + getName() + "]";
   }
 
 }
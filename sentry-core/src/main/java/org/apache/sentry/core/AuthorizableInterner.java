@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Returns a shared instance for an authorizable type and name so the
+ * authorizables of repeated requests are not allocated again. The lookup
+ * is by name, so an authorizable is only allocated when no instance of
+ * that name is in use. Interned instances are held weakly: once no
+ * request references the authorizable of a name, e.g. a dropped table,
+ * its entry is removed on a later call.
+ */
+public final class AuthorizableInterner {
+
+  private static final Map<Class<?>, ConcurrentMap<String, InternedReference>> INTERNED =
+      new HashMap<Class<?>, ConcurrentMap<String, InternedReference>>();
+  static {
+    for (Class<?> type : new Class<?>[] {
+        Server.class, Database.class, Table.class, View.class, AccessURI.class }) {
+      INTERNED.put(type, new ConcurrentHashMap<String, InternedReference>());
+    }
+  }
+  private static final ReferenceQueue<AbstractAuthorizable> CLEARED =
+      new ReferenceQueue<AbstractAuthorizable>();
+
+  private AuthorizableInterner() {
+    // no instances
+  }
+
+  /**
+   * @return an authorizable of the given type and name, shared with the
+   * other callers while it is referenced
+   * @throws IllegalArgumentException if the type is not one of
+   * Server, Database, Table, View or AccessURI
+   */
+  public static <T extends AbstractAuthorizable> T intern(Class<T> type, String name) {
+    ConcurrentMap<String, InternedReference> interned = INTERNED.get(type);
+    if (interned == null) {
+      throw new IllegalArgumentException("Cannot intern " + type.getName());
+    }
+    expungeCleared();
+    if (name == null) {
+      return create(type, name);
+    }
+    while (true) {
+      InternedReference reference = interned.get(name);
+      AbstractAuthorizable authorizable = reference == null ? null : reference.get();
+      if (authorizable != null) {
+        return type.cast(authorizable);
+      }
+      T created = create(type, name);
+      InternedReference createdReference = new InternedReference(created, interned, name);
+      if (reference == null ? interned.putIfAbsent(name, createdReference) == null :
+          interned.replace(name, reference, createdReference)) {
+        return created;
+      }
+      // another thread interned the name first
+    }
+  }
+
+  private static void expungeCleared() {
+    Reference<? extends AbstractAuthorizable> cleared;
+    while ((cleared = CLEARED.poll()) != null) {
+      InternedReference reference = (InternedReference) cleared;
+      reference.interned.remove(reference.name, reference);
+    }
+  }
+
+  private static <T extends AbstractAuthorizable> T create(Class<T> type, String name) {
+    if (type == Database.class) {
+      return type.cast(new Database(name));
+    } else if (type == Table.class) {
+      return type.cast(new Table(name));
+    } else if (type == View.class) {
+      return type.cast(new View(name));
+    } else if (type == Server.class) {
+      return type.cast(new Server(name));
+    }
+    return type.cast(new AccessURI(name));
+  }
+
+  static int size(Class<?> type) {
+    expungeCleared();
+    return INTERNED.get(type).size();
+  }
+
+  /**
+   * Knows its entry so that it can be removed once it is cleared
+   */
+  private static class InternedReference extends WeakReference<AbstractAuthorizable> {
+    private final ConcurrentMap<String, InternedReference> interned;
+    private final String name;
+
+    InternedReference(AbstractAuthorizable authorizable,
+        ConcurrentMap<String, InternedReference> interned, String name) {
+      super(authorizable, CLEARED);
+      this.interned = interned;
+      this.name = name;
+    }
+  }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.sentry.core;
 
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -48,4 +49,21 @@ public interface AuthorizationProvider {
    */
   public boolean hasAccess(Subject subject, List<Authorizable> authorizableHierarchy, EnumSet<Action> actions);
 
+  /***
+   * Validate subject privileges on many objects which share the same parent
+   * in one call, e.g. all tables of a database. The groups and privileges of
+   * the subject are resolved once for the whole batch.
+   *
+   * @param subject: UserID to validate privileges
+   * @param parentHierarchy : List of objects common to all the children
+   *        eg. Server->Db
+   * @param children : Objects appended to the parent hierarchy, eg. Tables
+   * @param actions : Privileges to validate
+   * @return
+   *        Bit i is set if the subject is authorized to perform requested action
+   *        on the parent hierarchy followed by the child at index i
+   */
+  public BitSet hasAccess(Subject subject, List<Authorizable> parentHierarchy,
+      List<? extends Authorizable> children, EnumSet<Action> actions);
+
 }
@@ -16,31 +16,19 @@
  */
 package org.apache.sentry.core;
 
-public class Database implements Authorizable {
+public class Database extends AbstractAuthorizable {
 
   /**
    * Represents all databases
    */
   public static final Database ALL = new Database(AccessConstants.ALL);
 
-  private final String name;
-
   public Database(String name) {
-    this.name = name;
-  }
-
-  @Override
-  public String getName() {
-    return name;
+    super(AuthorizableType.Db, name);
   }
 
   @Override
   public String toString() {
-    return "Database [name=" + name + "]";
-  }
-
-  @Override
-  public AuthorizableType getAuthzType() {
-    return AuthorizableType.Db;
+    return "Database [name=" + getName() + "]";
   }
 }
@@ -16,6 +16,7 @@
  */
 package org.apache.sentry.core;
 
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -41,4 +42,10 @@ public class NoAuthorizationProvider implements AuthorizationProvider {
     return false;
   }
 
+  @Override
+  public BitSet hasAccess(Subject subject, List<Authorizable> parentHierarchy,
+      List<? extends Authorizable> children, EnumSet<Action> actions) {
+    return new BitSet();
+  }
+
 }
@@ -16,31 +16,19 @@
  */
 package org.apache.sentry.core;
 
-public class Server implements Authorizable {
+public class Server extends AbstractAuthorizable {
 
   /**
    * Represents all servers
    */
   public static final Server ALL = new Server(AccessConstants.ALL);
 
-  private final String name;
-
   public Server(String name) {
-    this.name = name;
-  }
-
-  @Override
-  public String getName() {
-    return name;
+    super(AuthorizableType.Server, name);
   }
 
   @Override
   public String toString() {
-    return "Server [name=" + name + "]";
-  }
-
-  @Override
-  public AuthorizableType getAuthzType() {
-    return AuthorizableType.Server;
+    return "Server [name=" + getName() + "]";
   }
 }
@@ -16,31 +16,19 @@
  */
 package org.apache.sentry.core;
 
-public class Table implements TableOrView {
+public class Table extends AbstractAuthorizable implements TableOrView {
 
   /**
    * Represents all tables
    */
   public static final Table ALL = new Table(AccessConstants.ALL);
 
-  private final String name;
-
   public Table(String name) {
-    this.name = name;
-  }
-
-  @Override
-  public String getName() {
-    return name;
+    super(AuthorizableType.Table, name);
   }
 
   @Override
   public String toString() {
-    return "Table [name=" + name + "]";
-  }
-
-  @Override
-  public AuthorizableType getAuthzType() {
-    return AuthorizableType.Table;
+    return "Table [name=" + getName() + "]";
   }
 }
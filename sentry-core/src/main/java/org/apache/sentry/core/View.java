@@ -16,31 +16,19 @@
  */
 package org.apache.sentry.core;
 
-public class View implements TableOrView {
+public class View extends AbstractAuthorizable implements TableOrView {
 
   /**
    * Represents all views
    */
   public static final View ALL = new View(AccessConstants.ALL);
 
-  private final String name;
-
   public View(String name) {
-    this.name = name;
-  }
-
-  @Override
-  public String getName() {
-    return name;
+    super(AuthorizableType.View, name);
   }
 
   @Override
   public String toString() {
-    return "View [name=" + name + "]";
-  }
-
-  @Override
-  public AuthorizableType getAuthzType() {
-    return AuthorizableType.View;
+    return "View [name=" + getName() + "]";
   }
 }
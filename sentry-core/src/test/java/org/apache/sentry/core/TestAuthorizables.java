@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class TestAuthorizables {
+
+  @Test
+  public void testEquality() {
+    Assert.assertEquals(new Database("db1"), new Database("db1"));
+    Assert.assertEquals(new Database("db1").hashCode(), new Database("db1").hashCode());
+    Assert.assertEquals(new Database(null), new Database(null));
+    Assert.assertEquals(Table.ALL, new Table(AccessConstants.ALL));
+    Assert.assertEquals(new AccessURI("file:///path"), new AccessURI("file:///path"));
+    Assert.assertFalse(new Database("db1").equals(new Database("DB1")));
+    // a table and a view of the same name differ
+    Assert.assertFalse(new Table("tab1").equals(new View("tab1")));
+    Assert.assertFalse(new Database("db1").equals(null));
+  }
+
+  @Test
+  public void testNames() {
+    Database database = new Database("DB1");
+    Assert.assertEquals("DB1", database.getName());
+    Assert.assertEquals("Db=DB1", database.getCanonicalName());
+    Assert.assertEquals("Table=", new Table(null).getCanonicalName());
+    Assert.assertEquals("URI=file:///path", new AccessURI("file:///path").getCanonicalName());
+  }
+
+  @Test
+  public void testIntern() {
+    Table table = AuthorizableInterner.intern(Table.class, "tab1");
+    Assert.assertEquals(new Table("tab1"), table);
+    Assert.assertSame(table, AuthorizableInterner.intern(Table.class, "tab1"));
+    Assert.assertEquals(new View("tab1"), AuthorizableInterner.intern(View.class, "tab1"));
+    Assert.assertEquals(new Database(null), AuthorizableInterner.intern(Database.class, null));
+  }
+
+  @Test
+  public void testUnreferencedAreReleased() throws Exception {
+    Database database = AuthorizableInterner.intern(Database.class, "db0");
+    for (int i = 0; i < 100000; i++) {
+      Assert.assertEquals(new Database("db" + i),
+          AuthorizableInterner.intern(Database.class, "db" + i));
+    }
+    for (int i = 0; i < 10 && AuthorizableInterner.size(Database.class) > 1; i++) {
+      System.gc();
+      Thread.sleep(100L);
+    }
+    // only the name still referenced is left
+    Assert.assertEquals(1, AuthorizableInterner.size(Database.class));
+    Assert.assertSame(database, AuthorizableInterner.intern(Database.class, "db0"));
+    Assert.assertEquals(new Database("db1"), AuthorizableInterner.intern(Database.class, "db1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInternUnknownType() {
+    AuthorizableInterner.intern(AbstractAuthorizable.class, "name");
+  }
+}
@@ -21,6 +21,8 @@ import static org.apache.sentry.provider.file.PolicyFileConstants.PRIVILEGE_PREF
 
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.apache.sentry.core.Authorizable;
 import org.apache.shiro.config.ConfigurationException;
 
@@ -46,4 +48,14 @@ public abstract class AbstractRoleValidator implements RoleValidator {
     return result;
   }
 
+  /**
+   * Same as {@link #validate(String, String)} given the result of
+   * {@link #parseRole(String)} so that a role parsed once can be
+   * checked by several validators. Validators which do not override
+   * it parse the role again.
+   */
+  public void validate(@Nullable String database, String role,
+      Iterable<Authorizable> authorizables) throws ConfigurationException {
+    validate(database, role);
+  }
 }
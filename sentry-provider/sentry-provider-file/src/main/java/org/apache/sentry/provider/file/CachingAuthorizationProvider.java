@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.Closeable;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.sentry.core.AbstractAuthorizable;
+import org.apache.sentry.core.Action;
+import org.apache.sentry.core.Authorizable;
+import org.apache.sentry.core.AuthorizationProvider;
+import org.apache.sentry.core.Database;
+import org.apache.sentry.core.Server;
+import org.apache.sentry.core.ServerResource;
+import org.apache.sentry.core.Subject;
+import org.apache.sentry.core.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Wraps an {@link AuthorizationProvider} with a bounded cache of allow/deny
+ * decisions keyed on subject, authorizable hierarchy and actions. When the
+ * wrapped provider is a {@link ResourceAuthorizationProvider} a cached
+ * decision is only used if no new policy has been loaded and the groups
+ * of the subject are unchanged since the decision was made. Otherwise
+ * decisions are only expired by size and age.
+ */
+public class CachingAuthorizationProvider implements AuthorizationProvider, Closeable {
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(CachingAuthorizationProvider.class);
+
+  private final AuthorizationProvider delegate;
+  @Nullable
+  private final ResourceAuthorizationProvider resourceProvider;
+  private final Cache<DecisionKey, Decision> cache;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  public CachingAuthorizationProvider(AuthorizationProvider delegate,
+      long maximumSize, long expireAfterWriteMs) {
+    Preconditions.checkNotNull(delegate, "Delegate cannot be null");
+    Preconditions.checkArgument(maximumSize > 0, "Maximum size must be positive: " + maximumSize);
+    Preconditions.checkArgument(expireAfterWriteMs > 0, "Expiry must be positive: " + expireAfterWriteMs);
+    this.delegate = delegate;
+    if (delegate instanceof ResourceAuthorizationProvider) {
+      this.resourceProvider = (ResourceAuthorizationProvider) delegate;
+    } else {
+      this.resourceProvider = null;
+    }
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWriteMs, TimeUnit.MILLISECONDS)
+        .removalListener(new RemovalListener<DecisionKey, Decision>() {
+          @Override
+          public void onRemoval(RemovalNotification<DecisionKey, Decision> notification) {
+            if (notification.wasEvicted()) {
+              evictionCount.incrementAndGet();
+            }
+          }
+        })
+        .build();
+    LOGGER.info("Caching decisions of " + delegate.getClass().getName() + ", maximum size " +
+        maximumSize + ", expiry " + expireAfterWriteMs + "ms");
+  }
+
+  @Override
+  public boolean hasAccess(Subject subject, Server server, Database database,
+      Table table, EnumSet<Action> actions) {
+    List<Authorizable> authorizables = Lists.newArrayList();
+    authorizables.add(server);
+    authorizables.add(database);
+    authorizables.add(table);
+    return hasAccess(subject, authorizables, actions);
+  }
+
+  @Override
+  public boolean hasAccess(Subject subject, Server server,
+      ServerResource serverResource, EnumSet<Action> actions) {
+    return delegate.hasAccess(subject, server, serverResource, actions);
+  }
+
+  @Override
+  public boolean hasAccess(Subject subject, List<Authorizable> authorizableHierarchy,
+      EnumSet<Action> actions) {
+    Preconditions.checkNotNull(subject, "Subject cannot be null");
+    Preconditions.checkNotNull(authorizableHierarchy, "Authorizable cannot be null");
+    Preconditions.checkArgument(!authorizableHierarchy.isEmpty(), "Authorizable cannot be empty");
+    Preconditions.checkNotNull(actions, "Actions cannot be null");
+    EffectivePrivileges privileges = null;
+    List<String> groups = null;
+    long generation = 0;
+    if (resourceProvider != null) {
+      privileges = resourceProvider.getEffectivePrivileges(subject);
+      generation = privileges.getGeneration();
+      groups = privileges.getGroups();
+    }
+    DecisionKey key = new DecisionKey(subject.getName(), authorizableHierarchy, actions);
+    Decision decision = cache.getIfPresent(key);
+    if (decision != null && decision.isValid(generation, groups)) {
+      hitCount.incrementAndGet();
+      return decision.result;
+    }
+    missCount.incrementAndGet();
+    boolean result;
+    if (resourceProvider != null) {
+      result = resourceProvider.doHasAccess(privileges, authorizableHierarchy, actions);
+    } else {
+      result = delegate.hasAccess(subject, authorizableHierarchy, actions);
+    }
+    cache.put(key, new Decision(generation, groups, result));
+    return result;
+  }
+
+  /**
+   * Batches are not cached, a batch already resolves groups and
+   * permissions once for all the children.
+   */
+  @Override
+  public BitSet hasAccess(Subject subject, List<Authorizable> parentHierarchy,
+      List<? extends Authorizable> children, EnumSet<Action> actions) {
+    return delegate.hasAccess(subject, parentHierarchy, children, actions);
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private static class DecisionKey {
+    private final String subject;
+    private final ImmutableList<String> hierarchy;
+    private final EnumSet<Action> actions;
+    private final int hashCode;
+
+    DecisionKey(String subject, List<Authorizable> authorizables, EnumSet<Action> actions) {
+      this.subject = subject;
+      ImmutableList.Builder<String> hierarchyBuilder = ImmutableList.builder();
+      for (Authorizable authorizable : authorizables) {
+        if (authorizable instanceof AbstractAuthorizable) {
+          hierarchyBuilder.add(((AbstractAuthorizable) authorizable).getCanonicalName());
+        } else {
+          hierarchyBuilder.add(authorizable.getAuthzType().name() + "=" +
+              Strings.nullToEmpty(authorizable.getName()));
+        }
+      }
+      this.hierarchy = hierarchyBuilder.build();
+      this.actions = EnumSet.copyOf(actions);
+      this.hashCode = Objects.hashCode(subject, hierarchy, this.actions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof DecisionKey)) {
+        return false;
+      }
+      DecisionKey other = (DecisionKey) obj;
+      return hashCode == other.hashCode && Objects.equal(subject, other.subject) &&
+          hierarchy.equals(other.hierarchy) && actions.equals(other.actions);
+    }
+  }
+
+  @Override
+  public void close() {
+    ResourceAuthorizationProvider.closeQuietly(delegate);
+  }
+
+  private static class Decision {
+    private final long generation;
+    @Nullable
+    private final List<String> groups;
+    private final boolean result;
+
+    Decision(long generation, @Nullable List<String> groups, boolean result) {
+      this.generation = generation;
+      this.groups = groups;
+      this.result = result;
+    }
+
+    boolean isValid(long currentGeneration, @Nullable List<String> currentGroups) {
+      return generation == currentGeneration && Objects.equal(groups, currentGroups);
+    }
+  }
+}
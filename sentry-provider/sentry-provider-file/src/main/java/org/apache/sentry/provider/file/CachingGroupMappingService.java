@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Wraps a {@link GroupMappingService} with a bounded cache of the groups
+ * of each user. Groups older than the refresh interval are still returned
+ * while they are looked up again on a background thread, groups older
+ * than the time to live are looked up again before returning. Users
+ * without groups are cached for the negative time to live, which is
+ * usually shorter, so a user added to the directory is seen quickly.
+ */
+public class CachingGroupMappingService implements GroupMappingService, Closeable {
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(CachingGroupMappingService.class);
+  /**
+   * Time to live in milliseconds of the cached groups of a user. Zero,
+   * the default, disables caching. Read from the configuration and then
+   * from the system properties.
+   */
+  public final static String GROUPS_CACHE_TTL_MS = "sentry.groups.cache.ttl.ms";
+  /**
+   * Age in milliseconds after which cached groups are refreshed in the
+   * background. Defaults to half of the time to live.
+   */
+  public final static String GROUPS_CACHE_REFRESH_MS = "sentry.groups.cache.refresh.ms";
+  /**
+   * Time to live in milliseconds of a cached empty list of groups.
+   * Defaults to the smaller of the time to live and 30 seconds.
+   */
+  public final static String GROUPS_CACHE_NEGATIVE_TTL_MS = "sentry.groups.cache.negative.ttl.ms";
+  static final long MAX_USERS = 10000L;
+  private static final long DEFAULT_NEGATIVE_TTL_MS = 30000L;
+  private static final int REFRESH_THREADS = 4;
+  /**
+   * Shared by all the instances so a provider created per query does
+   * not start threads of its own. Idle threads exit.
+   */
+  private static final Executor REFRESH_EXECUTOR;
+  static {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS,
+        60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("group-refresher-%d").build());
+    executor.allowCoreThreadTimeOut(true);
+    REFRESH_EXECUTOR = executor;
+  }
+
+  private final GroupMappingService delegate;
+  private final long negativeTtlMs;
+  private final LoadingCache<String, CachedGroups> cache;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong negativeHitCount = new AtomicLong();
+  private final AtomicLong lookupCount = new AtomicLong();
+  private final AtomicLong refreshCount = new AtomicLong();
+  private final AtomicLong totalLookupTimeNanos = new AtomicLong();
+  private final AtomicLong maxLookupTimeNanos = new AtomicLong();
+
+  public CachingGroupMappingService(GroupMappingService delegate, long ttlMs,
+      long refreshMs, long negativeTtlMs) {
+    this(delegate, ttlMs, refreshMs, negativeTtlMs, REFRESH_EXECUTOR);
+  }
+
+  @VisibleForTesting
+  CachingGroupMappingService(GroupMappingService delegate, long ttlMs,
+      long refreshMs, long negativeTtlMs, final Executor executor) {
+    Preconditions.checkNotNull(delegate, "Delegate cannot be null");
+    Preconditions.checkArgument(ttlMs > 0, "Time to live must be positive: " + ttlMs);
+    Preconditions.checkArgument(refreshMs > 0 && refreshMs <= ttlMs,
+        "Refresh interval must be positive and at most the time to live: " + refreshMs);
+    Preconditions.checkArgument(negativeTtlMs >= 0 && negativeTtlMs <= ttlMs,
+        "Negative time to live must be at most the time to live: " + negativeTtlMs);
+    this.delegate = delegate;
+    this.negativeTtlMs = negativeTtlMs;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(MAX_USERS)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+        .refreshAfterWrite(refreshMs, TimeUnit.MILLISECONDS)
+        .build(new CacheLoader<String, CachedGroups>() {
+          @Override
+          public CachedGroups load(String user) {
+            return lookup(user);
+          }
+          @Override
+          public ListenableFuture<CachedGroups> reload(final String user, CachedGroups oldValue) {
+            refreshCount.incrementAndGet();
+            ListenableFutureTask<CachedGroups> task = ListenableFutureTask.create(
+                new Callable<CachedGroups>() {
+                  @Override
+                  public CachedGroups call() {
+                    return lookup(user);
+                  }
+                });
+            executor.execute(task);
+            return task;
+          }
+        });
+    LOGGER.info("Caching groups of " + delegate.getClass().getName() + ", time to live " +
+        ttlMs + "ms, refresh " + refreshMs + "ms, negative time to live " + negativeTtlMs + "ms");
+  }
+
+  /**
+   * Wraps the service if {@link #GROUPS_CACHE_TTL_MS} is positive,
+   * otherwise returns it unchanged.
+   */
+  public static GroupMappingService create(Configuration conf, GroupMappingService delegate) {
+    long ttlMs = getLong(conf, GROUPS_CACHE_TTL_MS, 0L);
+    if (ttlMs <= 0) {
+      return delegate;
+    }
+    long refreshMs = getLong(conf, GROUPS_CACHE_REFRESH_MS, Math.max(1L, ttlMs / 2));
+    long negativeTtlMs = getLong(conf, GROUPS_CACHE_NEGATIVE_TTL_MS,
+        Math.min(ttlMs, DEFAULT_NEGATIVE_TTL_MS));
+    return new CachingGroupMappingService(delegate, ttlMs, refreshMs, negativeTtlMs);
+  }
+
+  private static long getLong(Configuration conf, String name, long defaultValue) {
+    return conf.getLong(name, Long.getLong(name, defaultValue));
+  }
+
+  @Override
+  public List<String> getGroups(String user) {
+    CachedGroups cached = cache.getIfPresent(user);
+    if (cached != null && cached.groups.isEmpty() &&
+        System.currentTimeMillis() - cached.lookupTime > negativeTtlMs) {
+      cache.invalidate(user);
+      cached = null;
+    }
+    if (cached != null) {
+      hitCount.incrementAndGet();
+      if (cached.groups.isEmpty()) {
+        negativeHitCount.incrementAndGet();
+      }
+    } else {
+      missCount.incrementAndGet();
+    }
+    // unlike getIfPresent, get starts a refresh of stale groups
+    return getUnchecked(user).groups;
+  }
+
+  /**
+   * Cached users are resolved as by {@link #getGroups(String)}, the
+   * others are passed to the wrapped service in one call.
+   */
+  @Override
+  public Map<String, List<String>> getGroups(Collection<String> users) {
+    Map<String, List<String>> result = Maps.newHashMapWithExpectedSize(users.size());
+    List<String> missing = Lists.newArrayList();
+    for (String user : users) {
+      if (result.containsKey(user)) {
+        continue;
+      }
+      CachedGroups cached = cache.getIfPresent(user);
+      if (cached != null && !(cached.groups.isEmpty() &&
+          System.currentTimeMillis() - cached.lookupTime > negativeTtlMs)) {
+        result.put(user, getGroups(user));
+      } else {
+        // placeholder so duplicates are only looked up once
+        result.put(user, null);
+        missing.add(user);
+      }
+    }
+    if (!missing.isEmpty()) {
+      missCount.addAndGet(missing.size());
+      lookupCount.addAndGet(missing.size());
+      long start = System.nanoTime();
+      Map<String, List<String>> lookedUp = delegate.getGroups(missing);
+      totalLookupTimeNanos.addAndGet(System.nanoTime() - start);
+      long lookupTime = System.currentTimeMillis();
+      for (String user : missing) {
+        List<String> groups = lookedUp.get(user);
+        ImmutableList<String> userGroups = groups == null ? ImmutableList.<String>of() :
+            ImmutableList.copyOf(groups);
+        cache.put(user, new CachedGroups(userGroups, lookupTime));
+        result.put(user, userGroups);
+      }
+    }
+    return result;
+  }
+
+  private CachedGroups getUnchecked(String user) {
+    try {
+      return cache.get(user);
+    } catch (ExecutionException e) {
+      // lookup does not throw checked exceptions
+      throw new IllegalStateException("Unable to obtain groups for " + user, e.getCause());
+    }
+  }
+
+  private CachedGroups lookup(String user) {
+    lookupCount.incrementAndGet();
+    long start = System.nanoTime();
+    List<String> groups = delegate.getGroups(user);
+    long elapsed = System.nanoTime() - start;
+    totalLookupTimeNanos.addAndGet(elapsed);
+    long max = maxLookupTimeNanos.get();
+    while (elapsed > max && !maxLookupTimeNanos.compareAndSet(max, elapsed)) {
+      max = maxLookupTimeNanos.get();
+    }
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Looked up groups " + groups + " of " + user + " in " +
+          TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms");
+    }
+    return new CachedGroups(ImmutableList.copyOf(groups), System.currentTimeMillis());
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getNegativeHitCount() {
+    return negativeHitCount.get();
+  }
+
+  /**
+   * @return number of lookups made by the wrapped service, including
+   * background refreshes
+   */
+  public long getLookupCount() {
+    return lookupCount.get();
+  }
+
+  public long getRefreshCount() {
+    return refreshCount.get();
+  }
+
+  public long getTotalLookupTimeNanos() {
+    return totalLookupTimeNanos.get();
+  }
+
+  public long getMaxLookupTimeNanos() {
+    return maxLookupTimeNanos.get();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  @Override
+  public void close() {
+    ResourceAuthorizationProvider.closeQuietly(delegate);
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private static class CachedGroups {
+    private final ImmutableList<String> groups;
+    private final long lookupTime;
+
+    CachedGroups(ImmutableList<String> groups, long lookupTime) {
+      this.groups = groups;
+      this.lookupTime = lookupTime;
+    }
+  }
+}
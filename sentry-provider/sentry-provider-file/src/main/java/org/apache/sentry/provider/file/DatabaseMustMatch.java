@@ -24,11 +24,16 @@ public class DatabaseMustMatch extends AbstractRoleValidator {
 
   @Override
   public void validate(String database, String role) throws ConfigurationException {
+    validate(database, role, parseRole(role));
+  }
+
+  @Override
+  public void validate(String database, String role,
+      Iterable<Authorizable> authorizables) throws ConfigurationException {
     /*
      *  Rule only applies to rules in per database policy file
      */
     if(database != null) {
-      Iterable<Authorizable> authorizables = parseRole(role);
       for(Authorizable authorizable : authorizables) {
         if(authorizable instanceof Database &&
             !database.equalsIgnoreCase(authorizable.getName())) {
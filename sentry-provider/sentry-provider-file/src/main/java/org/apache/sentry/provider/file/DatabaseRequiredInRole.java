@@ -25,13 +25,36 @@ import org.apache.shiro.config.ConfigurationException;
 
 public class DatabaseRequiredInRole extends AbstractRoleValidator {
 
+  /**
+   * If null the system property is read on each validation
+   */
+  @Nullable
+  private final Boolean allowURIInAuthorizables;
+
+  public DatabaseRequiredInRole() {
+    this.allowURIInAuthorizables = null;
+  }
+
+  /**
+   * @param allowURIInAuthorizables if true URIs without a database are
+   * allowed in per database policy files
+   */
+  public DatabaseRequiredInRole(boolean allowURIInAuthorizables) {
+    this.allowURIInAuthorizables = allowURIInAuthorizables;
+  }
+
   @Override
   public void validate(@Nullable String database, String role) throws ConfigurationException {
+    validate(database, role, parseRole(role));
+  }
+
+  @Override
+  public void validate(@Nullable String database, String role,
+      Iterable<Authorizable> authorizables) throws ConfigurationException {
     /*
      *  Rule only applies to rules in per database policy file
      */
     if(database != null) {
-      Iterable<Authorizable> authorizables = parseRole(role);
       /*
        * Each permission in a non-global file must have a database
        * object except for URIs.
@@ -42,11 +65,12 @@ public class DatabaseRequiredInRole extends AbstractRoleValidator {
        */
       boolean foundDatabaseInAuthorizables = false;
       boolean foundURIInAuthorizables = false;
-      boolean allowURIInAuthorizables = false;
-
-      if ("true".equalsIgnoreCase(
-          System.getProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE))) {
-        allowURIInAuthorizables = true;
+      boolean allowURIInAuthorizables;
+      if (this.allowURIInAuthorizables == null) {
+        allowURIInAuthorizables = "true".equalsIgnoreCase(
+            System.getProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE));
+      } else {
+        allowURIInAuthorizables = this.allowURIInAuthorizables;
       }
 
       for(Authorizable authorizable : authorizables) {
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.sentry.core.Authorizable;
+import org.apache.shiro.authz.Permission;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The permissions granted to the groups of a subject by one generation of
+ * the policy. The permissions of a scope, the database and whether the
+ * request is for a URI, are merged from the roles of all the groups the
+ * first time the scope is requested and reused afterwards. A snapshot is
+ * only valid as long as the policy generation and the groups it was built
+ * for are current.
+ */
+final class EffectivePrivileges {
+  private final PolicyEngine policy;
+  private final long generation;
+  private final ImmutableList<String> groups;
+  private final ConcurrentMap<Scope, ImmutableSet<Permission>> permissionsByScope =
+      new ConcurrentHashMap<Scope, ImmutableSet<Permission>>();
+
+  EffectivePrivileges(PolicyEngine policy, long generation, List<String> groups) {
+    this.policy = policy;
+    this.generation = generation;
+    this.groups = ImmutableList.copyOf(groups);
+  }
+
+  long getGeneration() {
+    return generation;
+  }
+
+  ImmutableList<String> getGroups() {
+    return groups;
+  }
+
+  boolean isCurrent(long currentGeneration, List<String> currentGroups) {
+    return generation == currentGeneration && groups.equals(currentGroups);
+  }
+
+  /**
+   * @return the permissions of the groups for the scope of the hierarchy
+   */
+  ImmutableSet<Permission> getPermissions(List<Authorizable> authorizables) {
+    if (groups.isEmpty()) {
+      return ImmutableSet.of();
+    }
+    Scope scope = new Scope(SimplePolicyEngine.getDatabase(authorizables),
+        SimplePolicyEngine.isURI(authorizables));
+    ImmutableSet<Permission> permissions = permissionsByScope.get(scope);
+    if (permissions == null) {
+      // racing threads compute the same set, the first one is kept
+      permissions = policy.getCompiledPermissions(authorizables, groups);
+      ImmutableSet<Permission> existing = permissionsByScope.putIfAbsent(scope, permissions);
+      if (existing != null) {
+        permissions = existing;
+      }
+    }
+    return permissions;
+  }
+
+  int getScopeCount() {
+    return permissionsByScope.size();
+  }
+
+  private static class Scope {
+    @Nullable
+    private final String database;
+    private final boolean isURI;
+
+    Scope(@Nullable String database, boolean isURI) {
+      this.database = database;
+      this.isURI = isURI;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(database, isURI);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Scope)) {
+        return false;
+      }
+      Scope other = (Scope) obj;
+      return isURI == other.isURI && Objects.equal(database, other.database);
+    }
+  }
+}
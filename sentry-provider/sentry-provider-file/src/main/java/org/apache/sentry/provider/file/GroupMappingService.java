@@ -16,10 +16,14 @@
  */
 package org.apache.sentry.provider.file;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface so the Groups class is easier to unit test with.
+ * Implementations which have no faster way to resolve many users
+ * should extend {@link AbstractGroupMappingService}.
  */
 public interface GroupMappingService {
 
@@ -27,4 +31,10 @@ public interface GroupMappingService {
    * @return non-null list of groups for user
    */
   public List<String> getGroups(String user);
+
+  /**
+   * @return non-null map from each of the users to its non-null
+   * list of groups
+   */
+  public Map<String, List<String>> getGroups(Collection<String> users);
 }
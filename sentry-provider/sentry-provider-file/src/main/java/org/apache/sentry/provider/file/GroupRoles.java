@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Lists;
+
+/**
+ * The groups and roles of one policy file. Each group references its
+ * roles and each role holds its privileges, compiled once however many
+ * groups share the role. The privileges of a group are merged when the
+ * group is first looked up and the result is cached.
+ */
+public class GroupRoles {
+  private static final GroupRoles EMPTY = new GroupRoles(
+      ImmutableSetMultimap.<String, String>of(), ImmutableSetMultimap.<String, String>of(),
+      ImmutableMap.<String, ImmutableList<WildcardPermission>>of());
+
+  private final ImmutableSetMultimap<String, String> groupRoles;
+  private final ImmutableSetMultimap<String, String> rolePrivileges;
+  private final ImmutableMap<String, ImmutableList<WildcardPermission>> rolePermissions;
+  private final ConcurrentMap<String, ImmutableSet<String>> groupPrivilegesCache =
+      new ConcurrentHashMap<String, ImmutableSet<String>>();
+  private final ConcurrentMap<String, PermissionTrie> groupPermissionsCache =
+      new ConcurrentHashMap<String, PermissionTrie>();
+
+  private GroupRoles(ImmutableSetMultimap<String, String> groupRoles,
+      ImmutableSetMultimap<String, String> rolePrivileges,
+      ImmutableMap<String, ImmutableList<WildcardPermission>> rolePermissions) {
+    this.groupRoles = groupRoles;
+    this.rolePrivileges = rolePrivileges;
+    this.rolePermissions = rolePermissions;
+  }
+
+  public static GroupRoles of() {
+    return EMPTY;
+  }
+
+  /**
+   * Parse the privileges of each role. Each distinct privilege is parsed
+   * once by the dictionary and the result is shared by every role holding it.
+   * @param groupRoles roles of each group, roles without privileges are ignored
+   * @param rolePrivileges privileges of each role
+   * @throws IllegalArgumentException if a privilege cannot be parsed
+   */
+  static GroupRoles compile(ImmutableSetMultimap<String, String> groupRoles,
+      ImmutableSetMultimap<String, String> rolePrivileges, PrivilegeDictionary dictionary) {
+    ImmutableMap.Builder<String, ImmutableList<WildcardPermission>> rolePermissions =
+        ImmutableMap.builder();
+    for(Map.Entry<String, Collection<String>> entry : rolePrivileges.asMap().entrySet()) {
+      List<WildcardPermission> permissions = Lists.newArrayList();
+      for(String privilege : entry.getValue()) {
+        permissions.add(dictionary.getPermission(privilege));
+      }
+      rolePermissions.put(entry.getKey(), ImmutableList.copyOf(permissions));
+    }
+    return new GroupRoles(groupRoles, rolePrivileges, rolePermissions.build());
+  }
+
+  /**
+   * Same as {@link #compile(ImmutableSetMultimap, ImmutableSetMultimap, PrivilegeDictionary)}
+   * for privileges which have already been resolved for each group, each
+   * group is given a role of its own.
+   */
+  static GroupRoles compile(ImmutableSetMultimap<String, String> groupPrivileges,
+      PrivilegeDictionary dictionary) {
+    ImmutableSetMultimap.Builder<String, String> groupRoles = ImmutableSetMultimap.builder();
+    for(String group : groupPrivileges.keySet()) {
+      groupRoles.put(group, group);
+    }
+    return compile(groupRoles.build(), groupPrivileges, dictionary);
+  }
+
+  /**
+   * The groups and roles of several files as one. Roles of different
+   * files stay apart even if they have the same name and their compiled
+   * privileges are shared with the files.
+   */
+  static GroupRoles union(Collection<GroupRoles> files) {
+    ImmutableSetMultimap.Builder<String, String> groupRoles = ImmutableSetMultimap.builder();
+    ImmutableSetMultimap.Builder<String, String> rolePrivileges = ImmutableSetMultimap.builder();
+    ImmutableMap.Builder<String, ImmutableList<WildcardPermission>> rolePermissions =
+        ImmutableMap.builder();
+    int index = 0;
+    for(GroupRoles file : files) {
+      // the index of the file qualifies its role names
+      String prefix = index++ + "/";
+      for(Map.Entry<String, String> entry : file.groupRoles.entries()) {
+        groupRoles.put(entry.getKey(), prefix + entry.getValue());
+      }
+      for(Map.Entry<String, Collection<String>> entry : file.rolePrivileges.asMap().entrySet()) {
+        rolePrivileges.putAll(prefix + entry.getKey(), entry.getValue());
+      }
+      for(Map.Entry<String, ImmutableList<WildcardPermission>> entry :
+          file.rolePermissions.entrySet()) {
+        rolePermissions.put(prefix + entry.getKey(), entry.getValue());
+      }
+    }
+    return new GroupRoles(groupRoles.build(), rolePrivileges.build(), rolePermissions.build());
+  }
+
+  public ImmutableSetMultimap<String, String> getGroupRoles() {
+    return groupRoles;
+  }
+
+  public ImmutableSetMultimap<String, String> getRolePrivileges() {
+    return rolePrivileges;
+  }
+
+  /**
+   * @return privileges of the roles of the group, empty if it has none
+   */
+  public ImmutableSet<String> getPrivileges(String group) {
+    ImmutableSet<String> result = groupPrivilegesCache.get(group);
+    if(result == null) {
+      if(!groupRoles.containsKey(group)) {
+        return ImmutableSet.of();
+      }
+      ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
+      for(String role : groupRoles.get(group)) {
+        resultBuilder.addAll(rolePrivileges.get(role));
+      }
+      result = resultBuilder.build();
+      groupPrivilegesCache.putIfAbsent(group, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return privileges of the roles of the group compiled into one
+   * {@link PermissionTrie}, null if it has none
+   */
+  @Nullable
+  public PermissionTrie getPermissions(String group) {
+    PermissionTrie result = groupPermissionsCache.get(group);
+    if(result == null) {
+      if(!groupRoles.containsKey(group)) {
+        return null;
+      }
+      // roles sharing a privilege share its parsed form
+      ImmutableSet.Builder<WildcardPermission> permissions = ImmutableSet.builder();
+      for(String role : groupRoles.get(group)) {
+        ImmutableList<WildcardPermission> rolePermission = rolePermissions.get(role);
+        if(rolePermission != null) {
+          permissions.addAll(rolePermission);
+        }
+      }
+      ImmutableSet<WildcardPermission> groupPermissions = permissions.build();
+      if(groupPermissions.isEmpty()) {
+        return null;
+      }
+      result = new PermissionTrie(groupPermissions);
+      PermissionTrie existing = groupPermissionsCache.putIfAbsent(group, result);
+      if(existing != null) {
+        result = existing;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return privileges of each group, groups whose roles have no
+   * privileges are omitted
+   */
+  public ImmutableSetMultimap<String, String> getGroupPrivileges() {
+    ImmutableSetMultimap.Builder<String, String> resultBuilder = ImmutableSetMultimap.builder();
+    for(String group : groupRoles.keySet()) {
+      resultBuilder.putAll(group, getPrivileges(group));
+    }
+    return resultBuilder.build();
+  }
+}
@@ -17,17 +17,45 @@
 package org.apache.sentry.provider.file;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.security.Groups;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public class HadoopGroupMappingService implements GroupMappingService {
 
   private static final Logger LOGGER = LoggerFactory
       .getLogger(HadoopGroupMappingService.class);
+  private static final int LOOKUP_THREADS = 8;
+  /**
+   * Shared by all the instances, lookups may block on a directory
+   * server so many users are resolved concurrently. Idle threads exit.
+   */
+  private static final ExecutorService LOOKUP_EXECUTOR;
+  static {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(LOOKUP_THREADS, LOOKUP_THREADS,
+        60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("group-lookup-%d").build());
+    executor.allowCoreThreadTimeOut(true);
+    LOOKUP_EXECUTOR = executor;
+  }
   private final Groups groups;
 
   public HadoopGroupMappingService(Groups groups) {
@@ -43,4 +71,61 @@ public class HadoopGroupMappingService implements GroupMappingService {
     }
     return Collections.emptyList();
   }
+
+  /**
+   * Looks up the users concurrently. If interrupted, users which were
+   * not resolved yet are looked up by the calling thread.
+   */
+  @Override
+  public Map<String, List<String>> getGroups(Collection<String> users) {
+    Set<String> distinctUsers = ImmutableSet.copyOf(users);
+    Map<String, List<String>> result = Maps.newHashMapWithExpectedSize(distinctUsers.size());
+    if (distinctUsers.size() <= 1) {
+      for (String user : distinctUsers) {
+        result.put(user, getGroups(user));
+      }
+      return result;
+    }
+    List<String> userList = Lists.newArrayList(distinctUsers);
+    List<Callable<List<String>>> lookups = Lists.newArrayListWithCapacity(userList.size());
+    for (final String user : userList) {
+      lookups.add(new Callable<List<String>>() {
+        @Override
+        public List<String> call() {
+          return getGroups(user);
+        }
+      });
+    }
+    List<Future<List<String>>> futures = null;
+    try {
+      futures = LOOKUP_EXECUTOR.invokeAll(lookups);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (int i = 0; i < userList.size(); i++) {
+      String user = userList.get(i);
+      List<String> userGroups = null;
+      if (futures != null) {
+        try {
+          userGroups = futures.get(i).get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          LOGGER.warn("Unable to obtain groups for " + user, e.getCause());
+          userGroups = Collections.emptyList();
+        }
+      }
+      if (userGroups == null) {
+        try {
+          userGroups = getGroups(user);
+        } catch (RuntimeException e) {
+          // same as a failed lookup on the executor
+          LOGGER.warn("Unable to obtain groups for " + user, e);
+          userGroups = Collections.emptyList();
+        }
+      }
+      result.put(user, userGroups);
+    }
+    return result;
+  }
 }
@@ -27,8 +27,13 @@ import com.google.common.annotations.VisibleForTesting;
 public class HadoopGroupResourceAuthorizationProvider extends
   ResourceAuthorizationProvider {
   public HadoopGroupResourceAuthorizationProvider(String resource, String serverName) throws IOException {
-    this(new SimplePolicyEngine(resource, serverName), new HadoopGroupMappingService(
-        Groups.getUserToGroupsMappingService(new Configuration())));
+    this(new Configuration(), resource, serverName);
+  }
+
+  private HadoopGroupResourceAuthorizationProvider(Configuration conf, String resource,
+      String serverName) throws IOException {
+    this(new SimplePolicyEngine(resource, serverName), CachingGroupMappingService.create(conf,
+        new HadoopGroupMappingService(Groups.getUserToGroupsMappingService(conf))));
   }
 
   @VisibleForTesting
@@ -27,6 +27,9 @@ import com.google.common.collect.Lists;
 public class KeyValue {
   private final String key;
   private final String value;
+  // parsed on first use, a KeyValue is either part of a policy or a request
+  private ParsedURI policyURI;
+  private ParsedURI requestURI;
   public KeyValue(String keyValue) {
     List<String> kvList = Lists.newArrayList(KV_SPLITTER.trimResults().split(keyValue));
     if(kvList.size() != 2) {
@@ -52,6 +55,33 @@ public class KeyValue {
     return value;
   }
 
+  /**
+   * @return the value parsed as a policy URI, system properties are
+   * substituted the first time this is called. A policy keeps its parsed
+   * permissions until it is reloaded, so a changed property is seen after
+   * the next load of the policy.
+   */
+  ParsedURI getPolicyURI() {
+    ParsedURI result = policyURI;
+    if (result == null) {
+      result = ParsedURI.parsePolicy(value);
+      policyURI = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return the value parsed as a request URI
+   */
+  ParsedURI getRequestURI() {
+    ParsedURI result = requestURI;
+    if (result == null) {
+      result = ParsedURI.parseRequest(value);
+      requestURI = result;
+    }
+    return result;
+  }
+
   @Override
   public String toString() {
     return KV_JOINER.join(key, value);
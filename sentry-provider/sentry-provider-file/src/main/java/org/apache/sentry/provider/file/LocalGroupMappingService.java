@@ -17,24 +17,37 @@
 
 package org.apache.sentry.provider.file;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.shiro.config.Ini;
-import org.apache.shiro.config.Ini.Section;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Mapping users to groups
@@ -55,40 +68,154 @@ import com.google.common.collect.Lists;
  * group21
  * group22
  *
+ * The mapping is replaced as a whole when the file is read again, which
+ * happens in the background at the interval given by
+ * {@link SimplePolicyEngine#ACCESS_POLICY_RELOAD_INTERVAL_MS} if the
+ * modification time of the file changed. A {@link PolicySnapshot} has no
+ * users section and is rejected.
  */
-public class LocalGroupMappingService implements GroupMappingService {
+public class LocalGroupMappingService implements GroupMappingService, Closeable {
 
   private static final Logger LOGGER = LoggerFactory
       .getLogger(LocalGroupMappingService.class);
 
-  private final Map <String, List<String>> groupMap =
-      new HashMap <String, List<String>> ();
+  private final FileSystem fileSystem;
+  private final Path resourcePath;
+  private final AtomicReference<ImmutableMap<String, List<String>>> groupMapReference =
+      new AtomicReference<ImmutableMap<String, List<String>>>();
+  private final Object loadLock = new Object();
+  private final AtomicLong reloadFailureCount = new AtomicLong();
+  private volatile long modificationTime;
+  @Nullable
+  private final ScheduledExecutorService reloadExecutor;
 
   public LocalGroupMappingService(Path resourcePath) throws IOException {
     this(new Configuration(), resourcePath);
   }
   @VisibleForTesting
   public LocalGroupMappingService(Configuration configuration, Path resourcePath) throws IOException {
+    this.resourcePath = resourcePath;
+    this.fileSystem = resourcePath.getFileSystem(configuration);
     // parse user/group mapping
-    parseGroups(resourcePath.getFileSystem(configuration), resourcePath);
+    synchronized (loadLock) {
+      long fileModificationTime = getModificationTime();
+      groupMapReference.set(parseGroups(fileSystem, resourcePath));
+      modificationTime = fileModificationTime;
+    }
+    long reloadInterval = configuration.getLong(SimplePolicyEngine.ACCESS_POLICY_RELOAD_INTERVAL_MS,
+        Long.getLong(SimplePolicyEngine.ACCESS_POLICY_RELOAD_INTERVAL_MS, 0L));
+    if (reloadInterval > 0) {
+      reloadExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("group-mapping-reloader-%d").build());
+      reloadExecutor.scheduleWithFixedDelay(new ReloadTask(this, reloadExecutor),
+          reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+    } else {
+      reloadExecutor = null;
+    }
   }
 
   @Override
   public List<String> getGroups(String user) {
-    if (groupMap.containsKey(user)) {
-      return groupMap.get(user);
+    List<String> groups = groupMapReference.get().get(user);
+    if (groups != null) {
+      return groups;
     } else {
       return Collections.emptyList();
     }
   }
 
-  private void parseGroups(FileSystem fileSystem, Path resourcePath) throws IOException {
-    Ini ini = PolicyFiles.loadFromPath(fileSystem, resourcePath);
-    Section usersSection = ini.getSection(PolicyFileConstants.USERS);
-    if (usersSection == null) {
+  /**
+   * Resolves all the users against the same snapshot of the mapping.
+   */
+  @Override
+  public Map<String, List<String>> getGroups(Collection<String> users) {
+    ImmutableMap<String, List<String>> groupMap = groupMapReference.get();
+    Map<String, List<String>> result = Maps.newHashMapWithExpectedSize(users.size());
+    for (String user : users) {
+      List<String> groups = groupMap.get(user);
+      if (groups != null) {
+        result.put(user, groups);
+      } else {
+        result.put(user, Collections.<String>emptyList());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Read the file again if its modification time changed since it was
+   * last read. On error the current mapping is retained and the failure
+   * is counted.
+   * @return true if a new mapping was installed
+   */
+  @VisibleForTesting
+  boolean reloadIfModified() {
+    synchronized (loadLock) {
+      try {
+        long fileModificationTime = getModificationTime();
+        if (fileModificationTime == modificationTime) {
+          return false;
+        }
+        LOGGER.info("Reloading user to group mapping from " + resourcePath);
+        groupMapReference.set(parseGroups(fileSystem, resourcePath));
+        modificationTime = fileModificationTime;
+        return true;
+      } catch (Exception e) {
+        reloadFailureCount.incrementAndGet();
+        LOGGER.error("Error reloading " + resourcePath + ", keeping the current mapping", e);
+        return false;
+      }
+    }
+  }
+
+  public long getReloadFailureCount() {
+    return reloadFailureCount.get();
+  }
+
+  @Override
+  public void close() {
+    if (reloadExecutor != null) {
+      reloadExecutor.shutdownNow();
+    }
+  }
+
+  private long getModificationTime() throws IOException {
+    return fileSystem.getFileStatus(resourcePath).getModificationTime();
+  }
+
+  private static ImmutableMap<String, List<String>> parseGroups(FileSystem fileSystem,
+      Path resourcePath) throws IOException {
+    final Map<String, String> usersSection = Maps.newLinkedHashMap();
+    LOGGER.info("Opening " + resourcePath);
+    InputStream inputStream = new BufferedInputStream(fileSystem.open(resourcePath));
+    try {
+      byte[] header = new byte[4];
+      inputStream.mark(header.length);
+      int headerLength = ByteStreams.read(inputStream, header, 0, header.length);
+      inputStream.reset();
+      if (headerLength == header.length && PolicySnapshot.isSnapshot(header)) {
+        throw new IOException(resourcePath + " is a policy snapshot, which has no " +
+            PolicyFileConstants.USERS + " section. Local group mapping needs the policy file.");
+      }
+      PolicyFileParser.parse(inputStream, new PolicyFileParser.Handler() {
+        @Override
+        public void section(String name, Map<String, String> entries) {
+          if (PolicyFileConstants.USERS.equals(name)) {
+            // a later section replaces an earlier one
+            usersSection.clear();
+            usersSection.putAll(entries);
+          }
+        }
+      });
+    } finally {
+      inputStream.close();
+    }
+    if (usersSection.isEmpty()) {
       LOGGER.warn("No section " + PolicyFileConstants.USERS + " in the " + resourcePath);
-      return;
+      return ImmutableMap.of();
     }
+    // built completely before it is published
+    ImmutableMap.Builder<String, List<String>> groupMap = ImmutableMap.builder();
     for (Entry<String, String> userEntry : usersSection.entrySet()) {
       String userName = Strings.nullToEmpty(userEntry.getKey()).trim();
       String groupNames = Strings.nullToEmpty(userEntry.getValue()).trim();
@@ -101,11 +228,42 @@ public class LocalGroupMappingService implements GroupMappingService {
             " in the " + resourcePath);
         continue;
       }
-      List<String> groupList = Lists.newArrayList(
+      List<String> groupList = ImmutableList.copyOf(
           PolicyFileConstants.ROLE_SPLITTER.trimResults().split(groupNames));
       LOGGER.debug("Got user mapping: " + userName + ", Groups: " + groupNames);
       groupMap.put(userName, groupList);
     }
+    return groupMap.build();
+  }
+
+  /**
+   * Holds the service weakly so a service which is no longer referenced,
+   * but was not closed, stops its reload thread.
+   */
+  private static class ReloadTask implements Runnable {
+    private final WeakReference<LocalGroupMappingService> serviceReference;
+    private final ScheduledExecutorService executor;
+
+    ReloadTask(LocalGroupMappingService service, ScheduledExecutorService executor) {
+      this.serviceReference = new WeakReference<LocalGroupMappingService>(service);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      LocalGroupMappingService service = serviceReference.get();
+      if (service == null) {
+        executor.shutdown();
+        return;
+      }
+      try {
+        service.reloadIfModified();
+      } catch (Throwable t) {
+        // an exception would cancel the scheduled task
+        service.reloadFailureCount.incrementAndGet();
+        LOGGER.error("Unexpected error reloading " + service.resourcePath, t);
+      }
+    }
   }
 
 }
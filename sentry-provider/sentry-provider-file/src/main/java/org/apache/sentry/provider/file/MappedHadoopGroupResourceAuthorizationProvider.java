@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.security.Groups;
+
+/**
+ * Authorizes against a policy snapshot written by {@link PolicyCompiler}
+ * and mapped into memory by {@link MappedPolicyEngine}, resolving groups
+ * as {@link HadoopGroupResourceAuthorizationProvider} does. The snapshot
+ * must be a local file.
+ */
+public class MappedHadoopGroupResourceAuthorizationProvider extends
+  ResourceAuthorizationProvider {
+  public MappedHadoopGroupResourceAuthorizationProvider(String resource, String serverName)
+      throws IOException {
+    this(new Configuration(), resource, serverName);
+  }
+
+  private MappedHadoopGroupResourceAuthorizationProvider(Configuration conf, String resource,
+      String serverName) throws IOException {
+    super(new MappedPolicyEngine(conf, new File(new Path(resource).toUri().getPath()),
+        serverName), CachingGroupMappingService.create(conf,
+        new HadoopGroupMappingService(Groups.getUserToGroupsMappingService(conf))));
+  }
+}
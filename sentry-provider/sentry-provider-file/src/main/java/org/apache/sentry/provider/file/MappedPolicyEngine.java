@@ -0,0 +1,455 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.sentry.core.Authorizable;
+import org.apache.shiro.authz.Permission;
+import org.apache.shiro.config.ConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link PolicyEngine} which reads a {@link PolicySnapshot} from a local
+ * file mapped into memory. Privilege strings stay in the mapped file and
+ * are referenced by their index in the dictionary of the snapshot, only
+ * the names of groups and databases are held on the heap. The privileges
+ * of a group are decoded and compiled when the group is first looked up
+ * in a scope and a bounded number of the compiled results is kept, so the
+ * heap used depends on the groups which make requests rather than on the
+ * size of the policy.
+ *
+ * URI requests are matched against the per-db privileges if the snapshot
+ * was compiled with {@link SimplePolicyEngine#ACCESS_ALLOW_URI_PER_DB_POLICYFILE}.
+ * The union of the per-db privileges of each group is indexed when the
+ * snapshot is mapped, so a URI request looks up one scope and not every
+ * database. The snapshot is mapped again in the background as configured
+ * by {@link SimplePolicyEngine#ACCESS_POLICY_RELOAD_INTERVAL_MS}.
+ */
+public class MappedPolicyEngine implements PolicyEngine, Closeable {
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(MappedPolicyEngine.class);
+  static final long MAX_COMPILED_GROUPS = 10000L;
+  private static final int GLOBAL_SCOPE = -1;
+  /**
+   * Union of the per-db scopes, consulted by URI requests
+   */
+  private static final int URI_SCOPE = -2;
+
+  private final File snapshotFile;
+  private final String serverName;
+  private final AtomicReference<Mapping> mappingReference = new AtomicReference<Mapping>();
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong reloadFailureCount = new AtomicLong();
+  @Nullable
+  private final ScheduledExecutorService reloadExecutor;
+
+  public MappedPolicyEngine(String resourcePath, String serverName) throws IOException {
+    this(new Configuration(), new File(new Path(resourcePath).toUri().getPath()), serverName);
+  }
+  @VisibleForTesting
+  public MappedPolicyEngine(Configuration conf, File snapshotFile, String serverName)
+      throws IOException {
+    this.snapshotFile = snapshotFile;
+    this.serverName = serverName;
+    install(map());
+    long reloadInterval = conf.getLong(SimplePolicyEngine.ACCESS_POLICY_RELOAD_INTERVAL_MS,
+        Long.getLong(SimplePolicyEngine.ACCESS_POLICY_RELOAD_INTERVAL_MS, 0L));
+    if (reloadInterval > 0) {
+      LOGGER.info("Checking " + snapshotFile + " for changes every " + reloadInterval + "ms");
+      reloadExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("policy-snapshot-reloader-%d").build());
+      reloadExecutor.scheduleWithFixedDelay(new ReloadTask(this, reloadExecutor),
+          reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+    } else {
+      reloadExecutor = null;
+    }
+  }
+
+  /**
+   * Map the snapshot again if its modification time changed. On error the
+   * current mapping is retained and the failure is counted.
+   * @return true if a new mapping was installed
+   */
+  public synchronized boolean reloadIfModified() {
+    if (snapshotFile.lastModified() == mappingReference.get().modificationTime) {
+      return false;
+    }
+    try {
+      install(map());
+      return true;
+    } catch (Exception e) {
+      reloadFailureCount.incrementAndGet();
+      LOGGER.error("Error reloading " + snapshotFile + ", keeping the current policy", e);
+      return false;
+    }
+  }
+
+  public long getReloadFailureCount() {
+    return reloadFailureCount.get();
+  }
+
+  /**
+   * Stop reloading the snapshot in the background, if enabled
+   */
+  @Override
+  public void close() {
+    if (reloadExecutor != null) {
+      reloadExecutor.shutdownNow();
+    }
+  }
+
+  private void install(Mapping mapping) {
+    mappingReference.set(mapping);
+    generation.incrementAndGet();
+  }
+
+  private Mapping map() throws IOException {
+    LOGGER.info("Mapping policy snapshot " + snapshotFile);
+    long modificationTime = snapshotFile.lastModified();
+    RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+    MappedByteBuffer buffer;
+    try {
+      // the mapping remains valid after the channel is closed
+      buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+    } finally {
+      file.close();
+    }
+    Mapping mapping = new Mapping(buffer, modificationTime);
+    if (!serverName.equalsIgnoreCase(mapping.serverName)) {
+      throw new ConfigurationException("Policy snapshot " + snapshotFile +
+          " was compiled for server " + mapping.serverName + ", not " + serverName);
+    }
+    return mapping;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ImmutableSetMultimap<String, String> getPermissions(List<Authorizable> authorizables,
+      List<String> groups) {
+    Mapping mapping = mappingReference.get();
+    ImmutableSetMultimap.Builder<String, String> resultBuilder = ImmutableSetMultimap.builder();
+    for (String group : groups) {
+      for (Integer scope : mapping.getScopes(SimplePolicyEngine.getDatabase(authorizables),
+          SimplePolicyEngine.isURI(authorizables))) {
+        for (int privilege : mapping.getPrivileges(scope, group)) {
+          resultBuilder.put(group, mapping.getString(privilege));
+        }
+      }
+    }
+    return resultBuilder.build();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ImmutableSet<Permission> getCompiledPermissions(List<Authorizable> authorizables,
+      List<String> groups) {
+    Mapping mapping = mappingReference.get();
+    ImmutableSet.Builder<Permission> resultBuilder = ImmutableSet.builder();
+    for (String group : groups) {
+      for (Integer scope : mapping.getScopes(SimplePolicyEngine.getDatabase(authorizables),
+          SimplePolicyEngine.isURI(authorizables))) {
+        PermissionTrie permissions = mapping.getCompiled(scope, group);
+        if (permissions != null) {
+          resultBuilder.add(permissions);
+        }
+      }
+    }
+    return resultBuilder.build();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * Offsets into one mapping of the snapshot
+   */
+  private static class Mapping {
+    private final ByteBuffer buffer;
+    private final long modificationTime;
+    private final String serverName;
+    private final boolean allowURIPerDbFile;
+    /**
+     * Offset of each string of the dictionary
+     */
+    private final int[] stringOffsets;
+    /**
+     * Offset of the privilege list of each group, per scope
+     */
+    private final ImmutableMap<String, Integer> globalGroups;
+    private final ImmutableList<ImmutableMap<String, Integer>> databaseGroups;
+    private final ImmutableMap<String, Integer> databaseScopes;
+    /**
+     * Privileges of each group in any per-db scope, empty unless URIs
+     * are allowed in per-db policy files
+     */
+    private final ImmutableMap<String, int[]> uriGroups;
+    private final LoadingCache<ScopedGroup, PermissionTrie> compiled;
+
+    Mapping(ByteBuffer buffer, long modificationTime) throws IOException {
+      this.buffer = buffer;
+      this.modificationTime = modificationTime;
+      if (buffer.limit() < 8 || buffer.getInt(0) != PolicySnapshot.MAGIC) {
+        throw new ConfigurationException("Not a policy snapshot");
+      }
+      int version = buffer.getInt(4);
+      if (version != PolicySnapshot.VERSION) {
+        throw new ConfigurationException("Unsupported policy snapshot version " + version +
+            ", expected " + PolicySnapshot.VERSION);
+      }
+      allowURIPerDbFile = buffer.get(8) != 0;
+      int position = 9;
+      stringOffsets = new int[buffer.getInt(position)];
+      position += 4;
+      for (int i = 0; i < stringOffsets.length; i++) {
+        stringOffsets[i] = position;
+        position += 4 + buffer.getInt(position);
+      }
+      serverName = getString(buffer.getInt(position));
+      position += 4;
+      Map<String, Integer> groups = Maps.newHashMap();
+      position = indexGroups(position, groups);
+      globalGroups = ImmutableMap.copyOf(groups);
+      int databaseCount = buffer.getInt(position);
+      position += 4;
+      ImmutableList.Builder<ImmutableMap<String, Integer>> databaseGroupsBuilder =
+          ImmutableList.builder();
+      ImmutableMap.Builder<String, Integer> databaseScopesBuilder = ImmutableMap.builder();
+      for (int i = 0; i < databaseCount; i++) {
+        databaseScopesBuilder.put(getString(buffer.getInt(position)), i);
+        position += 4;
+        groups.clear();
+        position = indexGroups(position, groups);
+        databaseGroupsBuilder.add(ImmutableMap.copyOf(groups));
+      }
+      databaseGroups = databaseGroupsBuilder.build();
+      databaseScopes = databaseScopesBuilder.build();
+      uriGroups = allowURIPerDbFile ? indexURIGroups() : ImmutableMap.<String, int[]>of();
+      compiled = CacheBuilder.newBuilder()
+          .maximumSize(MAX_COMPILED_GROUPS)
+          .build(new CacheLoader<ScopedGroup, PermissionTrie>() {
+            @Override
+            public PermissionTrie load(ScopedGroup key) {
+              return compile(key.scope, key.group);
+            }
+          });
+    }
+
+    private int indexGroups(int position, Map<String, Integer> groups) {
+      int groupCount = buffer.getInt(position);
+      position += 4;
+      for (int i = 0; i < groupCount; i++) {
+        groups.put(getString(buffer.getInt(position)), position + 4);
+        position += 8 + 4 * buffer.getInt(position + 4);
+      }
+      return position;
+    }
+
+    private ImmutableMap<String, int[]> indexURIGroups() {
+      Map<String, Set<Integer>> privileges = Maps.newHashMap();
+      for (int scope = 0; scope < databaseGroups.size(); scope++) {
+        for (String group : databaseGroups.get(scope).keySet()) {
+          Set<Integer> groupPrivileges = privileges.get(group);
+          if (groupPrivileges == null) {
+            groupPrivileges = Sets.newLinkedHashSet();
+            privileges.put(group, groupPrivileges);
+          }
+          groupPrivileges.addAll(Ints.asList(getPrivileges(scope, group)));
+        }
+      }
+      ImmutableMap.Builder<String, int[]> result = ImmutableMap.builder();
+      for (Map.Entry<String, Set<Integer>> entry : privileges.entrySet()) {
+        result.put(entry.getKey(), Ints.toArray(entry.getValue()));
+      }
+      return result.build();
+    }
+
+    String getString(int index) {
+      int offset = stringOffsets[index];
+      byte[] bytes = new byte[buffer.getInt(offset)];
+      // a duplicate has its own position so concurrent readers do not interfere
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(offset + 4);
+      duplicate.get(bytes);
+      return new String(bytes, Charsets.UTF_8);
+    }
+
+    /**
+     * @return the scopes consulted for a request, as in {@link Roles}
+     */
+    List<Integer> getScopes(@Nullable String database, boolean isURI) {
+      List<Integer> scopes = Lists.newArrayListWithCapacity(2);
+      if (isURI && allowURIPerDbFile) {
+        // includes the scope of the database
+        scopes.add(URI_SCOPE);
+      } else if (database != null) {
+        Integer scope = databaseScopes.get(database);
+        if (scope != null) {
+          scopes.add(scope);
+        }
+      }
+      scopes.add(GLOBAL_SCOPE);
+      return scopes;
+    }
+
+    /**
+     * @return indexes of the privileges of the group in the scope
+     */
+    int[] getPrivileges(int scope, String group) {
+      if (scope == URI_SCOPE) {
+        int[] privileges = uriGroups.get(group);
+        return privileges == null ? new int[0] : privileges.clone();
+      }
+      Integer offset = getGroups(scope).get(group);
+      if (offset == null) {
+        return new int[0];
+      }
+      int[] privileges = new int[buffer.getInt(offset)];
+      for (int i = 0; i < privileges.length; i++) {
+        privileges[i] = buffer.getInt(offset + 4 + 4 * i);
+      }
+      return privileges;
+    }
+
+    @Nullable
+    PermissionTrie getCompiled(int scope, String group) {
+      if (!(scope == URI_SCOPE ? uriGroups : getGroups(scope)).containsKey(group)) {
+        return null;
+      }
+      try {
+        return compiled.get(new ScopedGroup(scope, group));
+      } catch (ExecutionException e) {
+        throw new IllegalArgumentException("Unable to compile privileges of " + group, e.getCause());
+      }
+    }
+
+    private Map<String, Integer> getGroups(int scope) {
+      return scope == GLOBAL_SCOPE ? globalGroups : databaseGroups.get(scope);
+    }
+
+    private PermissionTrie compile(int scope, String group) {
+      List<WildcardPermission> permissions = Lists.newArrayList();
+      for (int privilege : getPrivileges(scope, group)) {
+        permissions.add(new WildcardPermission(getString(privilege)));
+      }
+      return new PermissionTrie(permissions);
+    }
+  }
+
+  /**
+   * Holds the engine weakly so an engine which is no longer referenced,
+   * but was not closed, stops its reload thread.
+   */
+  private static class ReloadTask implements Runnable {
+    private final WeakReference<MappedPolicyEngine> engineReference;
+    private final ScheduledExecutorService executor;
+
+    ReloadTask(MappedPolicyEngine engine, ScheduledExecutorService executor) {
+      this.engineReference = new WeakReference<MappedPolicyEngine>(engine);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      MappedPolicyEngine engine = engineReference.get();
+      if (engine == null) {
+        executor.shutdown();
+        return;
+      }
+      try {
+        engine.reloadIfModified();
+      } catch (Throwable t) {
+        // an exception would cancel the scheduled task
+        engine.reloadFailureCount.incrementAndGet();
+        LOGGER.error("Unexpected error reloading " + engine.snapshotFile, t);
+      }
+    }
+  }
+
+  private static class ScopedGroup {
+    private final int scope;
+    private final String group;
+
+    ScopedGroup(int scope, String group) {
+      this.scope = scope;
+      this.group = group;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(scope, group);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ScopedGroup)) {
+        return false;
+      }
+      ScopedGroup other = (ScopedGroup) obj;
+      return scope == other.scope && group.equals(other.group);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.text.StrSubstitutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+
+/**
+ * A URI from a policy or a request, parsed once so that checking whether
+ * a policy URI implies a request URI does not parse or allocate. The path
+ * is stored with a trailing separator so a prefix test matches whole path
+ * components only, i.e. /a implies /a/b but not /ab.
+ */
+final class ParsedURI {
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(ParsedURI.class);
+  private static final Pattern PATH_SEPARATOR = Pattern.compile("/");
+  private static final ParsedURI INVALID = new ParsedURI(null, null, null, false);
+
+  private final String scheme;
+  private final String authority;
+  private final String schemeAndAuthority;
+  private final String path;
+  /**
+   * Path split on separators, empty components included, such that this
+   * path is a prefix of another one if and only if the components are
+   */
+  private final String[] pathComponents;
+  /**
+   * False if a request path contains relative parts such as /a/../b
+   */
+  private final boolean normalized;
+
+  private ParsedURI(String scheme, String authority, String path, boolean normalized) {
+    this.scheme = scheme;
+    this.authority = authority;
+    this.schemeAndAuthority = scheme + "://" + authority;
+    this.normalized = normalized;
+    if (path == null) {
+      this.path = null;
+      this.pathComponents = null;
+    } else {
+      // URI paths are always separated by /
+      this.path = path + "/";
+      this.pathComponents = PATH_SEPARATOR.split(path, -1);
+    }
+  }
+
+  /**
+   * Parse a URI from a policy file after substituting system properties
+   */
+  static ParsedURI parsePolicy(String policy) {
+    String substituted = new StrSubstitutor(System.getProperties()).replace(policy);
+    try {
+      URI policyURI = new URI(substituted);
+      if(policyURI.getScheme() == null || policyURI.getPath() == null) {
+        LOGGER.warn("Policy URI " + policy + " is not valid. Either no scheme or no path.");
+        return INVALID;
+      }
+      return new ParsedURI(policyURI.getScheme(), Strings.nullToEmpty(policyURI.getAuthority()),
+          policyURI.getPath(), true);
+    } catch (URISyntaxException e) {
+      LOGGER.warn("Policy URI " + policy + " is not a URI", e);
+      return INVALID;
+    }
+  }
+
+  /**
+   * Parse a URI from an authorization request
+   */
+  static ParsedURI parseRequest(String request) {
+    try {
+      URI requestURI = new URI(request);
+      if(requestURI.getScheme() == null || requestURI.getPath() == null) {
+        LOGGER.warn("Request URI " + request + " is not valid. Either no scheme or no path.");
+        return INVALID;
+      }
+      boolean normalized = requestURI.getPath().equals(requestURI.normalize().getPath());
+      return new ParsedURI(requestURI.getScheme(), Strings.nullToEmpty(requestURI.getAuthority()),
+          requestURI.getPath(), normalized);
+    } catch (URISyntaxException e) {
+      LOGGER.warn("Request URI " + request + " is not a URI", e);
+      return INVALID;
+    }
+  }
+
+  boolean isValid() {
+    return path != null;
+  }
+
+  /**
+   * @return true if this URI can be implied by a policy URI other than
+   * one which is textually equal
+   */
+  boolean isImpliable() {
+    return isValid() && normalized;
+  }
+
+  /**
+   * @return the scheme and authority, URIs can only imply each other if these are equal
+   */
+  String getSchemeAndAuthority() {
+    return schemeAndAuthority;
+  }
+
+  String[] getPathComponents() {
+    return pathComponents;
+  }
+
+  /**
+   * @return true if this policy URI implies the given request URI, that is
+   * schemes and authorities are equal, the request path does not contain
+   * relative parts and it starts with the path of this URI
+   */
+  boolean implies(ParsedURI request) {
+    return isValid() && request.isImpliable() &&
+        scheme.equals(request.scheme) &&
+        request.path.startsWith(path) &&
+        authority.equals(request.authority);
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sentry.core.AccessConstants;
+import org.apache.sentry.core.Authorizable.AuthorizableType;
+import org.apache.shiro.authz.Permission;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A set of {@link WildcardPermission}s indexed by position, e.g.
+ * server -> db -> table -> action, with a separate branch for
+ * <code>*</code> values. A request is matched by walking down the
+ * hierarchy so the cost depends on the depth of the request rather
+ * than the number of permissions. {@link #implies(Permission)} returns
+ * true if and only if one of the permissions implies the request.
+ */
+public class PermissionTrie implements Permission {
+
+  private final ImmutableList<WildcardPermission> permissions;
+  private final Node root = new Node();
+
+  public PermissionTrie(Iterable<WildcardPermission> permissions) {
+    this.permissions = ImmutableList.copyOf(permissions);
+    for (WildcardPermission permission : this.permissions) {
+      Node node = root;
+      for (KeyValue part : permission.getParts()) {
+        node = node.getOrCreateChild(part);
+      }
+      node.terminal = true;
+    }
+    root.computeWildcardTail();
+  }
+
+  public ImmutableList<WildcardPermission> getPermissions() {
+    return permissions;
+  }
+
+  @Override
+  public boolean implies(Permission p) {
+    // same as WildcardPermission, only other WildcardPermissions are supported
+    if (!(p instanceof WildcardPermission)) {
+      return false;
+    }
+    return implies(root, ((WildcardPermission)p).getParts(), 0);
+  }
+
+  private static boolean implies(Node node, List<KeyValue> request, int index) {
+    // a permission which is a prefix of the request implies it
+    if (node.terminal) {
+      return true;
+    }
+    // a permission longer than the request implies it only
+    // if all the remaining parts are wildcards
+    if (index == request.size()) {
+      return node.wildcardTail;
+    }
+    KeyValue requestPart = request.get(index);
+    Edges edges = node.edges.get(fold(requestPart.getKey()));
+    if (edges == null) {
+      return false;
+    }
+    if (edges.all != null && implies(edges.all, request, index + 1)) {
+      return true;
+    }
+    String requestValue = requestPart.getValue();
+    if (!edges.action && AccessConstants.ALL.equalsIgnoreCase(requestValue)) {
+      /* permission request is to match with any object of given type */
+      for (Node child : edges.values.values()) {
+        if (implies(child, request, index + 1)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (edges.uri) {
+      return impliesURI(edges, requestPart, request, index);
+    }
+    Node child = edges.values.get(fold(requestValue));
+    return child != null && implies(child, request, index + 1);
+  }
+
+  /**
+   * Policy URIs which are textually equal to the request URI, ignoring case,
+   * or which are a prefix of it. The prefixes are found by walking the path
+   * of the request down the index, so the cost depends on the depth of the
+   * path rather than the number of URIs granted.
+   */
+  private static boolean impliesURI(Edges edges, KeyValue requestPart,
+      List<KeyValue> request, int index) {
+    List<Node> equalChildren = edges.urisByFoldedValue.get(fold(requestPart.getValue()));
+    if (equalChildren != null) {
+      for (Node child : equalChildren) {
+        if (implies(child, request, index + 1)) {
+          return true;
+        }
+      }
+    }
+    ParsedURI requestURI = requestPart.getRequestURI();
+    if (!requestURI.isImpliable()) {
+      return false;
+    }
+    URIPathNode pathNode = edges.uriPaths.get(requestURI.getSchemeAndAuthority());
+    String[] components = requestURI.getPathComponents();
+    for (int i = 0; pathNode != null; i++) {
+      for (Node child : pathNode.grants) {
+        if (implies(child, request, index + 1)) {
+          return true;
+        }
+      }
+      if (i == components.length) {
+        break;
+      }
+      pathNode = pathNode.children.get(components[i]);
+    }
+    return false;
+  }
+
+  /**
+   * Case folding such that fold(a).equals(fold(b)) if and
+   * only if a.equalsIgnoreCase(b).
+   */
+  private static String fold(String value) {
+    char[] chars = value.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+    }
+    return new String(chars);
+  }
+
+  @Override
+  public String toString() {
+    return permissions.toString();
+  }
+
+  private static class Node {
+    private final Map<String, Edges> edges = Maps.newHashMap();
+    private boolean terminal;
+    /**
+     * True if this node ends a permission or can reach the end of one
+     * through values which are all <code>*</code>
+     */
+    private boolean wildcardTail;
+
+    Node getOrCreateChild(KeyValue part) {
+      String key = fold(part.getKey());
+      Edges keyEdges = edges.get(key);
+      if (keyEdges == null) {
+        keyEdges = new Edges(part.getKey());
+        edges.put(key, keyEdges);
+      }
+      return keyEdges.getOrCreateChild(part);
+    }
+
+    boolean computeWildcardTail() {
+      boolean result = terminal;
+      for (Edges keyEdges : edges.values()) {
+        for (Node child : keyEdges.values.values()) {
+          child.computeWildcardTail();
+        }
+        if (keyEdges.all != null && keyEdges.all.computeWildcardTail()) {
+          result = true;
+        }
+      }
+      wildcardTail = result;
+      return result;
+    }
+  }
+
+  /**
+   * Children of a node for a single key
+   */
+  private static class Edges {
+    private final boolean action;
+    private final boolean uri;
+    /**
+     * Child for the value <code>*</code>
+     */
+    private Node all;
+    /**
+     * Children by case folded value. URIs are compared
+     * case sensitively so they are keyed by the value as is.
+     */
+    private final Map<String, Node> values = Maps.newHashMap();
+    /**
+     * URI children by case folded value, for requests which are
+     * textually equal to the policy URI
+     */
+    private final Map<String, List<Node>> urisByFoldedValue = Maps.newHashMap();
+    /**
+     * URI children indexed by scheme and authority and then by path
+     * component. Policy URIs which cannot be parsed are not indexed.
+     */
+    private final Map<String, URIPathNode> uriPaths = Maps.newHashMap();
+
+    Edges(String key) {
+      this.action = PolicyFileConstants.PRIVILEGE_NAME.equalsIgnoreCase(key);
+      this.uri = AuthorizableType.URI.name().equalsIgnoreCase(key);
+    }
+
+    Node getOrCreateChild(KeyValue part) {
+      String value = part.getValue();
+      if (AccessConstants.ALL.equals(value)) {
+        if (all == null) {
+          all = new Node();
+        }
+        return all;
+      }
+      String indexValue = uri ? value : fold(value);
+      Node child = values.get(indexValue);
+      if (child == null) {
+        child = new Node();
+        if (uri) {
+          addURI(part, child);
+        }
+        values.put(indexValue, child);
+      }
+      return child;
+    }
+
+    private void addURI(KeyValue part, Node child) {
+      String foldedValue = fold(part.getValue());
+      List<Node> equalChildren = urisByFoldedValue.get(foldedValue);
+      if (equalChildren == null) {
+        equalChildren = Lists.newArrayListWithCapacity(1);
+        urisByFoldedValue.put(foldedValue, equalChildren);
+      }
+      equalChildren.add(child);
+      ParsedURI policyURI = part.getPolicyURI();
+      if (policyURI.isValid()) {
+        URIPathNode pathNode = uriPaths.get(policyURI.getSchemeAndAuthority());
+        if (pathNode == null) {
+          pathNode = new URIPathNode();
+          uriPaths.put(policyURI.getSchemeAndAuthority(), pathNode);
+        }
+        for (String component : policyURI.getPathComponents()) {
+          pathNode = pathNode.getOrCreateChild(component);
+        }
+        pathNode.grants.add(child);
+      }
+    }
+  }
+
+  /**
+   * A path component of the policy URIs of an {@link Edges}
+   */
+  private static class URIPathNode {
+    private final Map<String, URIPathNode> children = Maps.newHashMap();
+    /**
+     * Children of the trie for policy URIs ending at this component
+     */
+    private final List<Node> grants = Lists.newArrayListWithCapacity(1);
+
+    URIPathNode getOrCreateChild(String component) {
+      URIPathNode child = children.get(component);
+      if (child == null) {
+        child = new URIPathNode();
+        children.put(component, child);
+      }
+      return child;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Validates a policy, the global policy file and the per-db policy files
+ * listed in its databases section, and writes it as a
+ * {@link PolicySnapshot}. A snapshot can be used as the policy file of
+ * a provider, it is read without parsing or validating the policy again.
+ * A snapshot has no users section, so it cannot be used with
+ * {@link LocalGroupResourceAuthorizationProvider}.
+ * Usage: PolicyCompiler &lt;policy file&gt; &lt;server name&gt; &lt;snapshot file&gt;
+ */
+public class PolicyCompiler {
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 3) {
+      System.err.println("Usage: " + PolicyCompiler.class.getName() +
+          " <policy file> <server name> <snapshot file>");
+      System.exit(1);
+    }
+    try {
+      PolicySnapshot snapshot = compile(new Configuration(), new Path(args[0]), args[1]);
+      write(new Configuration(), snapshot, new Path(args[2]));
+      System.out.println("Wrote " + snapshot.getGlobalRoles().keySet().size() +
+          " groups and " + snapshot.getPerDatabaseRoles().size() + " per-db policy files to " +
+          args[2]);
+    } catch (Exception e) {
+      System.err.println("Invalid policy " + args[0] + ": " + e.getMessage());
+      System.exit(2);
+    }
+  }
+
+  public static PolicySnapshot compile(Configuration conf, Path policyFile, String serverName)
+      throws Exception {
+    SimplePolicyEngine policy = new SimplePolicyEngine(conf, policyFile, serverName);
+    try {
+      return policy.compileSnapshot();
+    } finally {
+      policy.close();
+    }
+  }
+
+  public static void write(Configuration conf, PolicySnapshot snapshot, Path snapshotFile)
+      throws IOException {
+    FileSystem fileSystem = snapshotFile.getFileSystem(conf);
+    // written next to the target and renamed so a reader never sees a partial snapshot
+    Path tmpFile = new Path(snapshotFile.getParent(), "." + snapshotFile.getName() + ".tmp");
+    OutputStream out = fileSystem.create(tmpFile, true);
+    try {
+      snapshot.write(out);
+    } finally {
+      out.close();
+    }
+    // replaces the previous snapshot in one step, there is no time without a snapshot
+    FileContext.getFileContext(fileSystem.getUri(), conf)
+        .rename(tmpFile, snapshotFile, Options.Rename.OVERWRITE);
+  }
+}
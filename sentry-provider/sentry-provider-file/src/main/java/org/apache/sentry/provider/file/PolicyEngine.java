@@ -20,7 +20,9 @@ package org.apache.sentry.provider.file;
 import java.util.List;
 
 import org.apache.sentry.core.Authorizable;
+import org.apache.shiro.authz.Permission;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 
 public interface PolicyEngine {
@@ -36,4 +38,24 @@ public interface PolicyEngine {
    */
   public ImmutableSetMultimap<String, String> getPermissions(List<Authorizable> authorizables, List<String> groups);
 
+  /**
+   * Get permissions associated with the groups as permission objects which
+   * were parsed when the policy was loaded. Authorization checks should use
+   * this method so that they do no parsing of their own. The result only
+   * depends on the database in the hierarchy and on whether the hierarchy
+   * contains a URI, callers may reuse it for other hierarchies of the same scope.
+   * @param authorizeable object
+   * @param group names
+   * @return non-null immutable set of permissions
+   */
+  public ImmutableSet<Permission> getCompiledPermissions(List<Authorizable> authorizables, List<String> groups);
+
+  /**
+   * Get a number which changes each time a new policy is loaded. It is
+   * incremented after the new policy is visible so results computed after
+   * reading a given generation are never newer than that generation.
+   * @return the current policy generation
+   */
+  public long getGeneration();
+
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+/**
+ * Reads the INI dialect of policy files from a stream, one line at a time,
+ * without building an intermediate copy of the file. The rules are those
+ * of Shiro's Ini, which was used before:
+ * <ul>
+ * <li>blank lines and lines starting with # or ; are ignored</li>
+ * <li>[name] starts a section, entries before the first section are in
+ * the section with the empty name</li>
+ * <li>a line ending in an odd number of backslashes continues on the next
+ * line, the last backslash is removed</li>
+ * <li>the key ends at the first unescaped =, : or whitespace, further
+ * separators before the value are skipped</li>
+ * <li>a later entry with the same key replaces an earlier one and a
+ * later section with the same name replaces an earlier one</li>
+ * <li>sections without entries are not reported</li>
+ * </ul>
+ */
+public final class PolicyFileParser {
+
+  /**
+   * Receives each section once its last entry has been read
+   */
+  public interface Handler {
+    /**
+     * @param entries non-empty entries of the section in file order
+     */
+    void section(String name, Map<String, String> entries);
+  }
+
+  private static final char ESCAPE = '\\';
+
+  private PolicyFileParser() {
+    // no instances
+  }
+
+  /**
+   * Parse UTF-8 encoded policy file content, the stream is not closed
+   * @throws IllegalArgumentException if an entry has no value
+   */
+  public static void parse(InputStream inputStream, Handler handler) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, Charsets.UTF_8));
+    String sectionName = "";
+    Map<String, String> entries = Maps.newLinkedHashMap();
+    StringBuilder continued = new StringBuilder();
+    String rawLine;
+    while ((rawLine = reader.readLine()) != null) {
+      String line = rawLine.trim();
+      if (line.isEmpty() || line.charAt(0) == '#' || line.charAt(0) == ';') {
+        continue;
+      }
+      if (line.charAt(0) == '[' && line.charAt(line.length() - 1) == ']') {
+        String name = line.substring(1, line.length() - 1).trim();
+        end(sectionName, entries, continued, handler);
+        sectionName = name;
+        entries = Maps.newLinkedHashMap();
+        continue;
+      }
+      if (isContinued(line)) {
+        continued.append(line, 0, line.length() - 1);
+        continue;
+      }
+      if (continued.length() > 0) {
+        continued.append(line);
+        line = continued.toString();
+        continued.setLength(0);
+      }
+      addEntry(line, entries);
+    }
+    end(sectionName, entries, continued, handler);
+  }
+
+  private static void end(String sectionName, Map<String, String> entries,
+      StringBuilder continued, Handler handler) {
+    if (continued.length() > 0) {
+      // a continuation on the last line of a section
+      addEntry(continued.toString(), entries);
+      continued.setLength(0);
+    }
+    if (!entries.isEmpty()) {
+      handler.section(sectionName, entries);
+    }
+  }
+
+  private static boolean isContinued(String line) {
+    int backslashCount = 0;
+    for (int i = line.length() - 1; i > 0 && line.charAt(i) == ESCAPE; i--) {
+      backslashCount++;
+    }
+    return backslashCount % 2 != 0;
+  }
+
+  private static void addEntry(String line, Map<String, String> entries) {
+    line = line.trim();
+    if (line.isEmpty()) {
+      return;
+    }
+    int keyEnd = -1;
+    for (int i = 0; i < line.length(); i++) {
+      if (isSeparator(line, i)) {
+        keyEnd = i;
+        break;
+      }
+    }
+    String key;
+    String value;
+    if (keyEnd < 0) {
+      key = line;
+      value = "";
+    } else {
+      key = line.substring(0, keyEnd).trim();
+      int valueStart = keyEnd + 1;
+      while (valueStart < line.length() && isSeparator(line, valueStart)) {
+        valueStart++;
+      }
+      value = line.substring(valueStart).trim();
+    }
+    if (key.isEmpty() || value.isEmpty()) {
+      throw new IllegalArgumentException("Line argument must contain a key and a value. " +
+          "Only one of the two was found: " + line);
+    }
+    entries.put(key, value);
+  }
+
+  private static boolean isSeparator(String line, int index) {
+    char c = line.charAt(index);
+    return (Character.isWhitespace(c) || c == ':' || c == '=') &&
+        !(index > 0 && line.charAt(index - 1) == ESCAPE);
+  }
+}
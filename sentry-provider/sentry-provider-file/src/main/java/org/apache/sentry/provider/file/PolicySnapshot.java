@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.shiro.config.ConfigurationException;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A validated policy, the global policy file and the per-db policy files
+ * it references, in a compact binary form which is read without parsing
+ * or validating the policy files again. Strings are written once to a
+ * dictionary and referenced by index. The format is
+ * <pre>
+ * int magic, int version, boolean allow URI per-db file
+ * int dictionary size, string...
+ * int server name, groups of the global file
+ * int database count, (int database, groups)...
+ * </pre>
+ * where groups is int group count, (int group, int privilege count,
+ * int privilege...)... and a string is an int length followed by UTF-8
+ * bytes. A policy file never starts with the magic number, whose first
+ * byte is zero, so snapshots and policy files are told apart by content.
+ */
+public class PolicySnapshot {
+  static final int MAGIC = 0x00534e50;
+  static final int VERSION = 1;
+
+  private final String serverName;
+  private final boolean allowURIPerDbFile;
+  private final ImmutableSetMultimap<String, String> globalRoles;
+  private final ImmutableMap<String, ImmutableSetMultimap<String, String>> perDatabaseRoles;
+
+  public PolicySnapshot(String serverName, boolean allowURIPerDbFile,
+      ImmutableSetMultimap<String, String> globalRoles,
+      ImmutableMap<String, ImmutableSetMultimap<String, String>> perDatabaseRoles) {
+    this.serverName = serverName;
+    this.allowURIPerDbFile = allowURIPerDbFile;
+    this.globalRoles = globalRoles;
+    this.perDatabaseRoles = perDatabaseRoles;
+  }
+
+  public String getServerName() {
+    return serverName;
+  }
+
+  public boolean isAllowURIPerDbFile() {
+    return allowURIPerDbFile;
+  }
+
+  public ImmutableSetMultimap<String, String> getGlobalRoles() {
+    return globalRoles;
+  }
+
+  public ImmutableMap<String, ImmutableSetMultimap<String, String>> getPerDatabaseRoles() {
+    return perDatabaseRoles;
+  }
+
+  public static boolean isSnapshot(byte[] content) {
+    return content.length >= 4 && readInt(content) == MAGIC;
+  }
+
+  private static int readInt(byte[] content) {
+    return ((content[0] & 0xff) << 24) | ((content[1] & 0xff) << 16) |
+        ((content[2] & 0xff) << 8) | (content[3] & 0xff);
+  }
+
+  public void write(OutputStream outputStream) throws IOException {
+    Map<String, Integer> dictionary = Maps.newLinkedHashMap();
+    index(dictionary, serverName);
+    index(dictionary, globalRoles);
+    for (Map.Entry<String, ImmutableSetMultimap<String, String>> entry : perDatabaseRoles.entrySet()) {
+      index(dictionary, entry.getKey());
+      index(dictionary, entry.getValue());
+    }
+    DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeBoolean(allowURIPerDbFile);
+    out.writeInt(dictionary.size());
+    for (String value : dictionary.keySet()) {
+      byte[] bytes = value.getBytes(Charsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+    out.writeInt(dictionary.get(serverName));
+    write(out, dictionary, globalRoles);
+    out.writeInt(perDatabaseRoles.size());
+    for (Map.Entry<String, ImmutableSetMultimap<String, String>> entry : perDatabaseRoles.entrySet()) {
+      out.writeInt(dictionary.get(entry.getKey()));
+      write(out, dictionary, entry.getValue());
+    }
+    out.flush();
+  }
+
+  private static void index(Map<String, Integer> dictionary, String value) {
+    if (!dictionary.containsKey(value)) {
+      dictionary.put(value, dictionary.size());
+    }
+  }
+
+  private static void index(Map<String, Integer> dictionary,
+      ImmutableSetMultimap<String, String> groups) {
+    for (Map.Entry<String, String> entry : groups.entries()) {
+      index(dictionary, entry.getKey());
+      index(dictionary, entry.getValue());
+    }
+  }
+
+  private static void write(DataOutputStream out, Map<String, Integer> dictionary,
+      ImmutableSetMultimap<String, String> groups) throws IOException {
+    out.writeInt(groups.keySet().size());
+    for (Map.Entry<String, Collection<String>> entry : groups.asMap().entrySet()) {
+      out.writeInt(dictionary.get(entry.getKey()));
+      out.writeInt(entry.getValue().size());
+      for (String privilege : entry.getValue()) {
+        out.writeInt(dictionary.get(privilege));
+      }
+    }
+  }
+
+  /**
+   * @throws ConfigurationException if the content is not a snapshot
+   * or was written by an unsupported version
+   */
+  public static PolicySnapshot read(byte[] content) throws IOException {
+    if (!isSnapshot(content)) {
+      throw new ConfigurationException("Not a policy snapshot");
+    }
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+    in.readInt();
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new ConfigurationException("Unsupported policy snapshot version " + version +
+          ", expected " + VERSION);
+    }
+    boolean allowURIPerDbFile = in.readBoolean();
+    String[] dictionary = new String[in.readInt()];
+    for (int i = 0; i < dictionary.length; i++) {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      dictionary[i] = new String(bytes, Charsets.UTF_8);
+    }
+    String serverName = dictionary[in.readInt()];
+    ImmutableSetMultimap<String, String> globalRoles = readGroups(in, dictionary);
+    int databaseCount = in.readInt();
+    ImmutableMap.Builder<String, ImmutableSetMultimap<String, String>> perDatabaseRoles =
+        ImmutableMap.builder();
+    for (int i = 0; i < databaseCount; i++) {
+      String database = dictionary[in.readInt()];
+      perDatabaseRoles.put(database, readGroups(in, dictionary));
+    }
+    return new PolicySnapshot(serverName, allowURIPerDbFile, globalRoles, perDatabaseRoles.build());
+  }
+
+  private static ImmutableSetMultimap<String, String> readGroups(DataInputStream in,
+      String[] dictionary) throws IOException {
+    ImmutableSetMultimap.Builder<String, String> resultBuilder = ImmutableSetMultimap.builder();
+    int groupCount = in.readInt();
+    for (int i = 0; i < groupCount; i++) {
+      String group = dictionary[in.readInt()];
+      int privilegeCount = in.readInt();
+      List<String> privileges = Lists.newArrayListWithCapacity(privilegeCount);
+      for (int j = 0; j < privilegeCount; j++) {
+        privileges.add(dictionary[in.readInt()]);
+      }
+      resultBuilder.putAll(group, privileges);
+    }
+    return resultBuilder.build();
+  }
+}
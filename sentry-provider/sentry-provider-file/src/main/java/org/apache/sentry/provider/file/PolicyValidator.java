@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.sentry.core.Authorizable;
+import org.apache.shiro.config.ConfigurationException;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Runs {@link RoleValidator}s over the privileges of a policy file. Each
+ * distinct privilege is parsed once and the result is given to every
+ * {@link AbstractRoleValidator}. Large policy files are split across
+ * threads. Every violation is collected instead of stopping at the first.
+ */
+public class PolicyValidator {
+  /**
+   * Privileges validated by one task, smaller policy files are
+   * validated by the calling thread
+   */
+  private static final int BATCH_SIZE = 5000;
+  /**
+   * Shared by all the instances and sized to the number of cores as
+   * the tasks do not block. Idle threads exit.
+   */
+  private static final ExecutorService EXECUTOR;
+  static {
+    int threads = Runtime.getRuntime().availableProcessors();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+        60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("policy-validator-%d").build());
+    executor.allowCoreThreadTimeOut(true);
+    EXECUTOR = executor;
+  }
+
+  private final ImmutableList<RoleValidator> validators;
+
+  public PolicyValidator(List<? extends RoleValidator> validators) {
+    this.validators = ImmutableList.copyOf(validators);
+  }
+
+  /**
+   * @param rolePrivileges privileges of each role
+   * @throws ConfigurationException listing every invalid privilege and
+   * the roles which hold it
+   */
+  public void validate(@Nullable String database, Multimap<String, String> rolePrivileges)
+      throws ConfigurationException {
+    Multimap<String, String> privilegeRoles = Multimaps.invertFrom(rolePrivileges,
+        LinkedHashMultimap.<String, String>create());
+    List<String> privileges = ImmutableList.copyOf(privilegeRoles.keySet());
+    List<String> violations = Lists.newArrayList();
+    if(privileges.size() <= BATCH_SIZE) {
+      violations.addAll(new ValidationTask(database, privileges, privilegeRoles).call());
+    } else {
+      // batches are merged in order so that the report does not depend on scheduling
+      List<Future<List<String>>> futures = Lists.newArrayList();
+      for(List<String> batch : Lists.partition(privileges, BATCH_SIZE)) {
+        futures.add(EXECUTOR.submit(new ValidationTask(database, batch, privilegeRoles)));
+      }
+      for(Future<List<String>> future : futures) {
+        try {
+          violations.addAll(Uninterruptibles.getUninterruptibly(future));
+        } catch (ExecutionException e) {
+          throw Throwables.propagate(e.getCause());
+        }
+      }
+    }
+    if(!violations.isEmpty()) {
+      throw new ConfigurationException(violations.size() + " invalid privileges" +
+          (database == null ? "" : " for database " + database) + ":\n" +
+          Joiner.on('\n').join(violations));
+    }
+  }
+
+  private class ValidationTask implements Callable<List<String>> {
+    @Nullable
+    private final String database;
+    private final List<String> privileges;
+    /**
+     * Only read by the tasks
+     */
+    private final Multimap<String, String> privilegeRoles;
+
+    ValidationTask(@Nullable String database, List<String> privileges,
+        Multimap<String, String> privilegeRoles) {
+      this.database = database;
+      this.privileges = privileges;
+      this.privilegeRoles = privilegeRoles;
+    }
+
+    @Override
+    public List<String> call() {
+      List<String> violations = Lists.newArrayList();
+      for(String privilege : privileges) {
+        Iterable<Authorizable> authorizables;
+        try {
+          authorizables = ImmutableList.copyOf(AbstractRoleValidator.parseRole(privilege));
+        } catch (ConfigurationException e) {
+          violations.add(violation(privilege, e));
+          continue;
+        } catch (IllegalArgumentException e) {
+          violations.add(violation(privilege, e));
+          continue;
+        }
+        for(RoleValidator validator : validators) {
+          try {
+            if(validator instanceof AbstractRoleValidator) {
+              ((AbstractRoleValidator)validator).validate(database, privilege, authorizables);
+            } else {
+              validator.validate(database, privilege);
+            }
+          } catch (ConfigurationException e) {
+            violations.add(violation(privilege, e));
+          }
+        }
+      }
+      return violations;
+    }
+
+    private String violation(String privilege, Exception e) {
+      return "Role " + Joiner.on(", ").join(privilegeRoles.get(privilege)) + ": " + e.getMessage();
+    }
+  }
+}
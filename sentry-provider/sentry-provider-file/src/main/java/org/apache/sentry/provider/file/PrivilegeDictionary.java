@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Privilege strings and their parsed form, shared by all the groups,
+ * roles and databases of one policy so that a privilege granted many
+ * times is held once. Safe for use by concurrent threads.
+ */
+final class PrivilegeDictionary {
+
+  private final ConcurrentMap<String, String> privileges =
+      new ConcurrentHashMap<String, String>();
+  private final ConcurrentMap<String, WildcardPermission> permissions =
+      new ConcurrentHashMap<String, WildcardPermission>();
+  /**
+   * Dictionary of the policy this one replaces, entries found there are
+   * adopted so that policy files which did not change share instances
+   * with the ones which did. Cleared by {@link #detach()}.
+   */
+  @Nullable
+  private volatile PrivilegeDictionary previous;
+
+  PrivilegeDictionary() {
+    this(null);
+  }
+
+  PrivilegeDictionary(@Nullable PrivilegeDictionary previous) {
+    this.previous = previous;
+  }
+
+  /**
+   * @return the instance of the privilege held by this dictionary
+   */
+  String intern(String privilege) {
+    String result = privileges.get(privilege);
+    if (result == null) {
+      PrivilegeDictionary previous = this.previous;
+      String candidate = previous == null ? null : previous.privileges.get(privilege);
+      if (candidate == null) {
+        candidate = privilege;
+      }
+      result = privileges.putIfAbsent(candidate, candidate);
+      if (result == null) {
+        result = candidate;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the parsed form of the privilege, parsed once per dictionary.
+   * Privileges referring to system properties are never adopted from the
+   * previous dictionary, so the properties are substituted again each
+   * time the policy is loaded, when the privilege is first checked.
+   * @throws IllegalArgumentException if the privilege cannot be parsed
+   */
+  WildcardPermission getPermission(String privilege) {
+    WildcardPermission result = permissions.get(privilege);
+    if (result == null) {
+      PrivilegeDictionary previous = this.previous;
+      WildcardPermission candidate = previous == null || privilege.contains("${") ? null :
+        previous.permissions.get(privilege);
+      if (candidate == null) {
+        candidate = new WildcardPermission(privilege);
+      }
+      result = permissions.putIfAbsent(intern(privilege), candidate);
+      if (result == null) {
+        result = candidate;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Stop adopting entries of the previous dictionary, called once the
+   * policy has been read so that older policies can be collected
+   */
+  void detach() {
+    previous = null;
+  }
+
+  int size() {
+    return privileges.size();
+  }
+}
@@ -16,13 +16,16 @@
  */
 package org.apache.sentry.provider.file;
 
-import static org.apache.sentry.provider.file.PolicyFileConstants.AUTHORIZABLE_JOINER;
-import static org.apache.sentry.provider.file.PolicyFileConstants.KV_JOINER;
 import static org.apache.sentry.provider.file.PolicyFileConstants.PRIVILEGE_NAME;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.sentry.core.Action;
 import org.apache.sentry.core.Authorizable;
@@ -36,21 +39,40 @@ import org.apache.shiro.authz.Permission;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterables;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
-public abstract class ResourceAuthorizationProvider implements AuthorizationProvider {
+public abstract class ResourceAuthorizationProvider implements AuthorizationProvider, Closeable {
   private static final Logger LOGGER = LoggerFactory
       .getLogger(ResourceAuthorizationProvider.class);
+  /**
+   * Bounds the snapshots kept for subjects, a snapshot is dropped once
+   * its subject has not made a request for an hour.
+   */
+  static final long MAX_SUBJECT_PRIVILEGES = 10000L;
+  static final long SUBJECT_PRIVILEGES_EXPIRY_MINUTES = 60L;
+  private static final Map<Action, KeyValue> ACTIONS = Maps.newEnumMap(Action.class);
+  static {
+    for (Action action : Action.values()) {
+      ACTIONS.put(action, new KeyValue(PRIVILEGE_NAME, action.getValue()));
+    }
+  }
   private final GroupMappingService groupService;
   private final PolicyEngine policy;
+  private final Cache<String, EffectivePrivileges> privilegesBySubject;
 
   public ResourceAuthorizationProvider(PolicyEngine policy,
       GroupMappingService groupService) {
     this.policy = policy;
     this.groupService = groupService;
+    this.privilegesBySubject = CacheBuilder.newBuilder()
+        .maximumSize(MAX_SUBJECT_PRIVILEGES)
+        .expireAfterAccess(SUBJECT_PRIVILEGES_EXPIRY_MINUTES, TimeUnit.MINUTES)
+        .build();
   }
 
   @Override
@@ -90,26 +112,125 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
     Preconditions.checkArgument(!authorizableHierarchy.isEmpty(), "Authorizable cannot be empty");
     Preconditions.checkNotNull(actions, "Actions cannot be null");
     Preconditions.checkNotNull(!actions.isEmpty(), "Actions cannot be empty");
-    return doHasAccess(subject, authorizableHierarchy, actions);
+    return doHasAccess(getEffectivePrivileges(subject), authorizableHierarchy, actions);
   }
 
-  private boolean doHasAccess(Subject subject,
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public BitSet hasAccess(Subject subject, List<Authorizable> parentHierarchy,
+      List<? extends Authorizable> children, EnumSet<Action> actions) {
+    if(LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Authorization Request for " + subject + " " +
+          parentHierarchy + " with " + children.size() + " children and " + actions);
+    }
+    Preconditions.checkNotNull(subject, "Subject cannot be null");
+    Preconditions.checkNotNull(parentHierarchy, "Parent authorizable cannot be null");
+    Preconditions.checkNotNull(children, "Children cannot be null");
+    Preconditions.checkNotNull(actions, "Actions cannot be null");
+    return doHasAccess(getEffectivePrivileges(subject), parentHierarchy, children, actions);
+  }
+
+  List<String> getGroups(Subject subject) {
+    return groupService.getGroups(subject.getName());
+  }
+
+  long getPolicyGeneration() {
+    return policy.getGeneration();
+  }
+
+  /**
+   * Stops the background work, e.g. reloading, of the policy engine and
+   * of the group mapping service. Decisions can still be made with the
+   * policy and groups loaded last.
+   */
+  @Override
+  public void close() {
+    closeQuietly(policy);
+    closeQuietly(groupService);
+  }
+
+  static void closeQuietly(Object object) {
+    if (object instanceof Closeable) {
+      try {
+        ((Closeable) object).close();
+      } catch (IOException e) {
+        LOGGER.warn("Error closing " + object, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the privileges of the subject, reusing the snapshot built for
+   * an earlier request of the subject unless a new policy was loaded or
+   * the groups of the subject changed since.
+   */
+  EffectivePrivileges getEffectivePrivileges(Subject subject) {
+    // read the generation first so a policy loaded while the snapshot
+    // is built results in the snapshot being treated as stale
+    long generation = policy.getGeneration();
+    List<String> groups = getGroups(subject);
+    EffectivePrivileges privileges = privilegesBySubject.getIfPresent(subject.getName());
+    if (privileges == null || !privileges.isCurrent(generation, groups)) {
+      privileges = new EffectivePrivileges(policy, generation, groups);
+      privilegesBySubject.put(subject.getName(), privileges);
+    }
+    return privileges;
+  }
+
+  boolean doHasAccess(EffectivePrivileges privileges,
       List<Authorizable> authorizables, EnumSet<Action> actions) {
-    List<String> groups = groupService.getGroups(subject.getName());
-    List<String> hierarchy = new ArrayList<String>();
+    List<KeyValue> hierarchy = new ArrayList<KeyValue>(authorizables.size() + 1);
     for (Authorizable authorizable : authorizables) {
-      hierarchy.add(KV_JOINER.join(authorizable.getAuthzType().name(), authorizable.getName()));
+      hierarchy.add(toKeyValue(authorizable));
+    }
+    return implies(privileges.getPermissions(authorizables), hierarchy, actions);
+  }
+
+  BitSet doHasAccess(EffectivePrivileges privileges, List<Authorizable> parentHierarchy,
+      List<? extends Authorizable> children, EnumSet<Action> actions) {
+    BitSet result = new BitSet(children.size());
+    List<Authorizable> authorizables = new ArrayList<Authorizable>(parentHierarchy.size() + 1);
+    List<KeyValue> hierarchy = new ArrayList<KeyValue>(parentHierarchy.size() + 2);
+    for (Authorizable authorizable : parentHierarchy) {
+      authorizables.add(authorizable);
+      hierarchy.add(toKeyValue(authorizable));
     }
-    Iterable<Permission> permissions = getPermissions(authorizables, groups);
+    authorizables.add(null);
+    hierarchy.add(null);
+    int childIndex = parentHierarchy.size();
+    for (int i = 0; i < children.size(); i++) {
+      Authorizable child = children.get(i);
+      authorizables.set(childIndex, child);
+      hierarchy.set(childIndex, toKeyValue(child));
+      if (implies(privileges.getPermissions(authorizables), hierarchy, actions)) {
+        result.set(i);
+      }
+    }
+    return result;
+  }
+
+  private static KeyValue toKeyValue(Authorizable authorizable) {
+    return new KeyValue(authorizable.getAuthzType().name(),
+        Strings.nullToEmpty(authorizable.getName()).trim());
+  }
+
+  /**
+   * Does any of the permissions imply any of the actions on the hierarchy?
+   * The hierarchy is restored before returning.
+   */
+  private static boolean implies(Iterable<Permission> permissions,
+      List<KeyValue> hierarchy, EnumSet<Action> actions) {
     for (Action action : actions) {
-      String requestPermission = AUTHORIZABLE_JOINER.join(hierarchy);
-      requestPermission = AUTHORIZABLE_JOINER.join(requestPermission,
-          KV_JOINER.join(PRIVILEGE_NAME, action.getValue()));
+      hierarchy.add(ACTIONS.get(action));
+      WildcardPermission requestPermission = new WildcardPermission(hierarchy);
+      hierarchy.remove(hierarchy.size() - 1);
       for (Permission permission : permissions) {
         /*
          * Does the permission granted in the policy file imply the requested action?
          */
-        boolean result = permission.implies(new WildcardPermission(requestPermission));
+        boolean result = permission.implies(requestPermission);
         if(LOGGER.isDebugEnabled()) {
           LOGGER.debug("FilePermission {}, RequestPermission {}, result {}",
               new Object[]{ permission, requestPermission, result});
@@ -121,14 +242,4 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
     }
     return false;
   }
-
-  private Iterable<Permission> getPermissions(List<Authorizable> authorizables, List<String> groups) {
-    return Iterables.transform(policy.getPermissions(authorizables, groups).values(),
-        new Function<String, Permission>() {
-      @Override
-      public Permission apply(String permission) {
-        return new WildcardPermission(permission);
-      }
-    });
-  }
 }
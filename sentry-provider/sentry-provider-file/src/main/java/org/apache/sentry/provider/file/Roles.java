@@ -16,6 +16,8 @@
  */
 package org.apache.sentry.provider.file;
 
+import java.util.Map;
+
 import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
@@ -24,47 +26,61 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
-import com.google.common.io.Resources;
 
 public class Roles {
   private static final Logger LOGGER = LoggerFactory
       .getLogger(Roles.class);
-  private final ImmutableSetMultimap<String, String> globalRoles;
-  private final ImmutableMap<String, ImmutableSetMultimap<String, String>> perDatabaseRoles;
+  private final GroupRoles globalRoles;
+  private final ImmutableMap<String, GroupRoles> perDatabaseRoles;
+  /**
+   * If true URI requests are matched against the roles of the group in
+   * every per-db policy file
+   */
+  private final boolean allowURIPerDbFile;
+  /**
+   * The per-db policy files as one, so a URI request looks up a single
+   * scope however many databases there are. Empty unless allowURIPerDbFile.
+   */
+  private final GroupRoles uriRoles;
   public Roles() {
-    this(ImmutableSetMultimap.<String,String>of(),
-        ImmutableMap.<String, ImmutableSetMultimap<String, String>>of());
+    this(GroupRoles.of(), ImmutableMap.<String, GroupRoles>of(), false);
   }
   public Roles(
       ImmutableSetMultimap<String, String> globalRoles,
       ImmutableMap<String, ImmutableSetMultimap<String, String>> perDatabaseRoles) {
+    this(GroupRoles.compile(globalRoles, new PrivilegeDictionary()),
+        compile(perDatabaseRoles, new PrivilegeDictionary()),
+        "true".equalsIgnoreCase(
+            System.getProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE)));
+  }
+  /**
+   * @param allowURIPerDbFile if true URI requests are matched against the
+   * roles of the group in every per-db policy file
+   */
+  public Roles(GroupRoles globalRoles, ImmutableMap<String, GroupRoles> perDatabaseRoles,
+      boolean allowURIPerDbFile) {
     super();
     this.globalRoles = globalRoles;
     this.perDatabaseRoles = perDatabaseRoles;
+    this.allowURIPerDbFile = allowURIPerDbFile;
+    this.uriRoles = allowURIPerDbFile ? GroupRoles.union(perDatabaseRoles.values()) :
+      GroupRoles.of();
   }
-  public ImmutableSet<String> getRoles(@Nullable String database, String group, Boolean isURI) {
-    ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
-    String allowURIPerDbFile = 
-        System.getProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE);
-    Boolean consultPerDbRolesForURI = isURI && ("true".equalsIgnoreCase(allowURIPerDbFile));
 
-    if(database != null) {
-      ImmutableSetMultimap<String, String> dbPolicies =  perDatabaseRoles.get(database);
-      if(dbPolicies != null && dbPolicies.containsKey(group)) {
-        resultBuilder.addAll(dbPolicies.get(group));
-      }
-    }
-    if (consultPerDbRolesForURI) {
-      for(String db:perDatabaseRoles.keySet()) {
-        ImmutableSetMultimap<String, String> dbPolicies =  perDatabaseRoles.get(db);
-        if(dbPolicies != null && dbPolicies.containsKey(group)) {
-          resultBuilder.addAll(dbPolicies.get(group));
-        }
-      }
+  private static ImmutableMap<String, GroupRoles> compile(
+      ImmutableMap<String, ImmutableSetMultimap<String, String>> perDatabaseRoles,
+      PrivilegeDictionary dictionary) {
+    ImmutableMap.Builder<String, GroupRoles> resultBuilder = ImmutableMap.builder();
+    for(Map.Entry<String, ImmutableSetMultimap<String, String>> entry : perDatabaseRoles.entrySet()) {
+      resultBuilder.put(entry.getKey(), GroupRoles.compile(entry.getValue(), dictionary));
     }
+    return resultBuilder.build();
+  }
 
-    if(globalRoles.containsKey(group)) {
-      resultBuilder.addAll(globalRoles.get(group));
+  public ImmutableSet<String> getRoles(@Nullable String database, String group, Boolean isURI) {
+    ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
+    for(GroupRoles scope : getScopes(database, isURI)) {
+      resultBuilder.addAll(scope.getPrivileges(group));
     }
     ImmutableSet<String> result = resultBuilder.build();
     if(LOGGER.isDebugEnabled()) {
@@ -73,4 +89,38 @@ public class Roles {
     }
     return result;
   }
+
+  /**
+   * Same as {@link #getRoles(String, String, Boolean)} but returns the
+   * compiled permissions, one {@link PermissionTrie} per scope the group
+   * appears in.
+   */
+  public ImmutableSet<PermissionTrie> getPermissions(@Nullable String database, String group,
+      Boolean isURI) {
+    ImmutableSet.Builder<PermissionTrie> resultBuilder = ImmutableSet.builder();
+    for(GroupRoles scope : getScopes(database, isURI)) {
+      PermissionTrie permissions = scope.getPermissions(group);
+      if(permissions != null) {
+        resultBuilder.add(permissions);
+      }
+    }
+    return resultBuilder.build();
+  }
+
+  /**
+   * @return the policy files consulted for a request on the database
+   */
+  private ImmutableSet<GroupRoles> getScopes(@Nullable String database, Boolean isURI) {
+    if (isURI && allowURIPerDbFile) {
+      // includes the file of the database
+      return ImmutableSet.of(uriRoles, globalRoles);
+    }
+    if(database != null) {
+      GroupRoles dbRoles = perDatabaseRoles.get(database);
+      if(dbRoles != null) {
+        return ImmutableSet.of(dbRoles, globalRoles);
+      }
+    }
+    return ImmutableSet.of(globalRoles);
+  }
 }
@@ -30,7 +30,12 @@ public class ServerNameMustMatch extends AbstractRoleValidator {
   }
   @Override
   public void validate(@Nullable String database, String role) throws ConfigurationException {
-    Iterable<Authorizable> authorizables = parseRole(role);
+    validate(database, role, parseRole(role));
+  }
+
+  @Override
+  public void validate(@Nullable String database, String role,
+      Iterable<Authorizable> authorizables) throws ConfigurationException {
     for(Authorizable authorizable : authorizables) {
       if(authorizable instanceof Server && !serverName.equalsIgnoreCase(authorizable.getName())) {
         String msg = "Server name " + authorizable.getName() + " in "
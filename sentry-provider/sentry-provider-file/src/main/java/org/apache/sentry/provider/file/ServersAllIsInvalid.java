@@ -26,7 +26,12 @@ public class ServersAllIsInvalid extends AbstractRoleValidator {
 
   @Override
   public void validate(@Nullable String database, String role) throws ConfigurationException {
-    Iterable<Authorizable> authorizables = parseRole(role);
+    validate(database, role, parseRole(role));
+  }
+
+  @Override
+  public void validate(@Nullable String database, String role,
+      Iterable<Authorizable> authorizables) throws ConfigurationException {
     for(Authorizable authorizable : authorizables) {
       if(authorizable instanceof Server &&
           authorizable.getName().equals(Server.ALL.getName())) {
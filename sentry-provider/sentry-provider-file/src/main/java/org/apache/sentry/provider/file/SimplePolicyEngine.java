@@ -22,13 +22,26 @@ import static org.apache.sentry.provider.file.PolicyFileConstants.ROLES;
 import static org.apache.sentry.provider.file.PolicyFileConstants.ROLE_SPLITTER;
 import static org.apache.sentry.provider.file.PolicyFileConstants.USERS;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.net.URI;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
@@ -39,8 +52,8 @@ import org.apache.hadoop.fs.Path;
 import org.apache.sentry.core.AccessURI;
 import org.apache.sentry.core.Authorizable;
 import org.apache.sentry.core.Database;
+import org.apache.shiro.authz.Permission;
 import org.apache.shiro.config.ConfigurationException;
-import org.apache.shiro.config.Ini;
 import org.apache.shiro.util.PermissionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,15 +61,22 @@ import org.slf4j.LoggerFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 
-public class SimplePolicyEngine implements PolicyEngine {
+public class SimplePolicyEngine implements PolicyEngine, Closeable {
 
   private static final Logger LOGGER = LoggerFactory
       .getLogger(SimplePolicyEngine.class);
@@ -66,10 +86,39 @@ public class SimplePolicyEngine implements PolicyEngine {
   private final FileSystem fileSystem;
   private final Path resourcePath;
   private final String serverName;
-  private final List<Path> perDbResources = Lists.newArrayList();
   private final AtomicReference<Roles> rolesReference;
+  private final AtomicLong generation = new AtomicLong();
   private final Configuration conf;
   public final static String ACCESS_ALLOW_URI_PER_DB_POLICYFILE = "sentry.allow.uri.db.policyfile";
+  /**
+   * Interval in milliseconds at which the policy files are checked for
+   * modification and reloaded in the background. Zero, the default,
+   * disables reloading. Read from the configuration and then from
+   * the system properties.
+   */
+  public final static String ACCESS_POLICY_RELOAD_INTERVAL_MS = "sentry.policy.reload.interval.ms";
+
+  /**
+   * Number of threads reading per-db policy files, shared by all the
+   * instances. Idle threads exit.
+   */
+  private static final int LOAD_THREADS = 8;
+  private static final ExecutorService LOAD_EXECUTOR;
+  static {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(LOAD_THREADS, LOAD_THREADS,
+        60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("policy-loader-%d").build());
+    executor.allowCoreThreadTimeOut(true);
+    LOAD_EXECUTOR = executor;
+  }
+
+  @Nullable
+  private final ScheduledExecutorService reloadExecutor;
+  private final Object loadLock = new Object();
+  private volatile LoadedPolicy loadedPolicy;
+  private volatile long lastReloadTime;
+  private volatile long lastReloadDuration;
+  private final AtomicLong reloadFailureCount = new AtomicLong();
 
   public SimplePolicyEngine(String resourcePath, String serverName) throws IOException {
     this(new Configuration(), new Path(resourcePath), serverName);
@@ -83,6 +132,17 @@ public class SimplePolicyEngine implements PolicyEngine {
     this.rolesReference.set(new Roles());
     this.conf = conf;
     parse();
+    long reloadInterval = conf.getLong(ACCESS_POLICY_RELOAD_INTERVAL_MS,
+        Long.getLong(ACCESS_POLICY_RELOAD_INTERVAL_MS, 0L));
+    if(reloadInterval > 0) {
+      LOGGER.info("Checking " + resourcePath + " for changes every " + reloadInterval + "ms");
+      reloadExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("policy-reloader-%d").build());
+      reloadExecutor.scheduleWithFixedDelay(new ReloadTask(this, reloadExecutor),
+          reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+    } else {
+      reloadExecutor = null;
+    }
   }
 
   /**
@@ -90,55 +150,436 @@ public class SimplePolicyEngine implements PolicyEngine {
    */
   protected void parse() {
     LOGGER.info("Parsing " + resourcePath);
-    Roles roles = new Roles();
-    try {
-      perDbResources.clear();
-      Ini ini = PolicyFiles.loadFromPath(fileSystem, resourcePath);
-      if(LOGGER.isDebugEnabled()) {
-        for(String sectionName : ini.getSectionNames()) {
-          LOGGER.debug("Section: " + sectionName);
-          Ini.Section section = ini.get(sectionName);
-          for(String key : section.keySet()) {
-            String value = section.get(key);
-            LOGGER.debug(key + " = " + value);
+    synchronized (loadLock) {
+      LoadedPolicy policy;
+      long modificationTime = getResourceModificationTime();
+      try {
+        policy = load(null, false);
+      } catch (Exception e) {
+        LOGGER.error("Error processing file, ignoring " + resourcePath, e);
+        policy = new LoadedPolicy(new Roles(), new PrivilegeDictionary(), modificationTime, null,
+            ImmutableMap.<String, ParsedPolicyFile>of(), ImmutableMap.<Path, Long>of());
+      }
+      install(policy);
+    }
+  }
+
+  /**
+   * Parse the resource again if the global policy file or one of the
+   * per-db policy files has been modified since it was last read. Only
+   * files which have changed are parsed. On error the current policy
+   * is retained and the failure is counted.
+   * @return true if a new policy was installed
+   */
+  @VisibleForTesting
+  boolean reloadIfModified() {
+    synchronized (loadLock) {
+      try {
+        if(!isModified()) {
+          return false;
+        }
+      } catch (IOException e) {
+        reloadFailureCount.incrementAndGet();
+        LOGGER.warn("Error checking modification time of " + resourcePath, e);
+        return false;
+      }
+      LOGGER.info("Reloading " + resourcePath);
+      long start = System.currentTimeMillis();
+      try {
+        install(load(loadedPolicy, false));
+      } catch (Exception e) {
+        reloadFailureCount.incrementAndGet();
+        LOGGER.error("Error reloading " + resourcePath + ", keeping the current policy", e);
+        return false;
+      }
+      long end = System.currentTimeMillis();
+      lastReloadDuration = end - start;
+      lastReloadTime = end;
+      return true;
+    }
+  }
+
+  /**
+   * Compare the modification time of each policy file with the
+   * modification time it had when it was read.
+   */
+  private boolean isModified() throws IOException {
+    LoadedPolicy policy = loadedPolicy;
+    // if resource path has been deleted, throw all exceptions
+    if(fileSystem.getFileStatus(resourcePath).getModificationTime() != policy.modificationTime) {
+      return true;
+    }
+    for(Map.Entry<Path, Long> entry : policy.perDbModificationTimes.entrySet()) {
+      Path perDbPolicy = entry.getKey();
+      try {
+        if(perDbPolicy.getFileSystem(conf).getFileStatus(perDbPolicy)
+            .getModificationTime() != entry.getValue()) {
+          return true;
+        }
+      } catch (FileNotFoundException e) {
+        // if a per-db file has been deleted, wait until the main
+        // policy file has been updated before refreshing
+      }
+    }
+    return false;
+  }
+
+  private void install(LoadedPolicy policy) {
+    loadedPolicy = policy;
+    rolesReference.set(policy.roles);
+    generation.incrementAndGet();
+  }
+
+  /**
+   * Read and validate the policy as {@link #parse()} does, but fail on an
+   * error in a per-db policy file instead of skipping the file.
+   * @return the policy in the form written by {@link PolicyCompiler}
+   */
+  PolicySnapshot compileSnapshot() throws Exception {
+    LoadedPolicy policy = load(null, true);
+    ImmutableMap.Builder<String, ImmutableSetMultimap<String, String>> perDatabaseRoles =
+        ImmutableMap.builder();
+    if(policy.global.snapshotDatabaseRoles != null) {
+      for(Map.Entry<String, GroupRoles> entry : policy.global.snapshotDatabaseRoles.entrySet()) {
+        perDatabaseRoles.put(entry.getKey(), entry.getValue().getGroupPrivileges());
+      }
+    }
+    for(Map.Entry<String, ParsedPolicyFile> entry : policy.perDatabase.entrySet()) {
+      perDatabaseRoles.put(entry.getKey(), entry.getValue().roles.getGroupPrivileges());
+    }
+    return new PolicySnapshot(serverName, policy.global.allowURIPerDbFile,
+        policy.global.roles.getGroupPrivileges(), perDatabaseRoles.build());
+  }
+
+  /**
+   * Read the global policy file and the per-db policy files it references.
+   * Errors in a per-db policy file are logged and the file is skipped.
+   * If the global policy file is a {@link PolicySnapshot} it holds the
+   * roles of the per-db policy files as well.
+   * @param previous if not null, files whose modification time or content
+   * is unchanged since they were read for this policy are not parsed again
+   * @param strict if true an error in a per-db policy file is thrown
+   */
+  private LoadedPolicy load(@Nullable LoadedPolicy previous, boolean strict) throws Exception {
+    // shared by the threads parsing per-db policy files
+    PrivilegeDictionary dictionary =
+        new PrivilegeDictionary(previous == null ? null : previous.dictionary);
+    // read once so that all the files of a policy are treated the same
+    boolean allowURIPerDbFile =
+        "true".equalsIgnoreCase(System.getProperty(ACCESS_ALLOW_URI_PER_DB_POLICYFILE));
+    long modificationTime = fileSystem.getFileStatus(resourcePath).getModificationTime();
+    ParsedPolicyFile global = parsePolicyFile(fileSystem, resourcePath, null, modificationTime,
+        previous == null ? null : previous.global, allowURIPerDbFile, dictionary);
+    Map<String, GroupRoles> perDatabaseRoles = Maps.newLinkedHashMap();
+    Map<String, ParsedPolicyFile> perDatabase = Maps.newLinkedHashMap();
+    Map<Path, Long> perDbModificationTimes = Maps.newLinkedHashMap();
+    if(global.snapshotDatabaseRoles != null) {
+      perDatabaseRoles.putAll(global.snapshotDatabaseRoles);
+    } else if(global.databases == null) {
+      LOGGER.info("Section " + DATABASES + " needs no further processing");
+    } else {
+      // files are read concurrently but merged in the order of the section
+      // so that the result does not depend on which file is read first
+      List<Future<PerDbPolicyFile>> futures = Lists.newArrayList();
+      for(Map.Entry<String, String> entry : global.databases.entrySet()) {
+        Callable<PerDbPolicyFile> task = new PerDbLoadTask(entry.getKey(), entry.getValue(),
+            previous, allowURIPerDbFile, dictionary);
+        if(global.databases.size() == 1) {
+          futures.add(Futures.immediateFuture(task.call()));
+        } else {
+          futures.add(LOAD_EXECUTOR.submit(task));
+        }
+      }
+      for(Future<PerDbPolicyFile> future : futures) {
+        PerDbPolicyFile result = Uninterruptibles.getUninterruptibly(future);
+        if(result.modificationTime != null) {
+          // tracked even if invalid so that fixing it triggers a reload
+          perDbModificationTimes.put(result.path, result.modificationTime);
+        }
+        if(result.error != null) {
+          if(strict) {
+            throw result.error;
           }
+          LOGGER.error("Error processing key " + result.key + ", skipping " + result.value,
+              result.error);
+        } else {
+          perDatabaseRoles.put(result.database, result.policyFile.roles);
+          perDatabase.put(result.database, result.policyFile);
         }
       }
-      ImmutableSetMultimap<String, String> globalRoles;
-      Map<String, ImmutableSetMultimap<String, String>> perDatabaseRoles = Maps.newHashMap();
-      globalRoles = parseIni(null, ini);
-      Ini.Section filesSection = ini.getSection(DATABASES);
-      if(filesSection == null) {
-        LOGGER.info("Section " + DATABASES + " needs no further processing");
+    }
+    dictionary.detach();
+    if(global.snapshotDatabaseRoles != null) {
+      // a snapshot is matched as it was compiled, as MappedPolicyEngine does
+      allowURIPerDbFile = global.allowURIPerDbFile;
+    }
+    Roles roles = new Roles(global.roles, ImmutableMap.copyOf(perDatabaseRoles), allowURIPerDbFile);
+    LOGGER.info("Policy " + resourcePath + " has " + dictionary.size() + " distinct privileges");
+    return new LoadedPolicy(roles, dictionary, modificationTime, global,
+        ImmutableMap.copyOf(perDatabase), ImmutableMap.copyOf(perDbModificationTimes));
+  }
+
+  /**
+   * Reads one entry of the databases section. Errors are returned rather
+   * than thrown so that they are reported in the order of the section.
+   */
+  private class PerDbLoadTask implements Callable<PerDbPolicyFile> {
+    private final String key;
+    private final String value;
+    @Nullable
+    private final LoadedPolicy previous;
+    private final boolean allowURIPerDbFile;
+    private final PrivilegeDictionary dictionary;
+
+    PerDbLoadTask(String key, String value, @Nullable LoadedPolicy previous,
+        boolean allowURIPerDbFile, PrivilegeDictionary dictionary) {
+      this.key = key;
+      this.value = value;
+      this.previous = previous;
+      this.allowURIPerDbFile = allowURIPerDbFile;
+      this.dictionary = dictionary;
+    }
+
+    @Override
+    public PerDbPolicyFile call() {
+      PerDbPolicyFile result = new PerDbPolicyFile(key, value);
+      result.database = Strings.nullToEmpty(key).trim().toLowerCase();
+      Path perDbPolicy = new Path(Strings.nullToEmpty(value).trim());
+      if(isRelative(perDbPolicy)) {
+        perDbPolicy = new Path(resourcePath.getParent(), perDbPolicy);
+      }
+      result.path = perDbPolicy;
+      try {
+        FileSystem perDbFileSystem = perDbPolicy.getFileSystem(conf);
+        long perDbModificationTime = perDbFileSystem.getFileStatus(perDbPolicy).getModificationTime();
+        result.modificationTime = perDbModificationTime;
+        result.policyFile = parsePolicyFile(perDbFileSystem, perDbPolicy, result.database,
+            perDbModificationTime, previous == null ? null : previous.perDatabase.get(result.database),
+            allowURIPerDbFile, dictionary);
+      } catch (Exception e) {
+        result.error = e;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Feeds the bytes read through it to a hasher
+   */
+  private static class HashingInputStream extends FilterInputStream {
+    private final Hasher hasher;
+
+    HashingInputStream(InputStream in, Hasher hasher) {
+      super(in);
+      this.hasher = hasher;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if(b >= 0) {
+        hasher.putByte((byte) b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int count = in.read(buffer, offset, length);
+      if(count > 0) {
+        hasher.putBytes(buffer, offset, count);
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      throw new IOException("Skipping would leave bytes out of the hash");
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+
+  /**
+   * Outcome of reading one entry of the databases section
+   */
+  private static class PerDbPolicyFile {
+    private final String key;
+    private final String value;
+    private String database;
+    private Path path;
+    @Nullable
+    private Long modificationTime;
+    @Nullable
+    private ParsedPolicyFile policyFile;
+    @Nullable
+    private Exception error;
+
+    PerDbPolicyFile(String key, String value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Parse a global (database is null) or per-db policy file unless it has
+   * the same modification time or content as when previous was parsed.
+   * @param modificationTime of the file before it is read
+   * @param allowURIPerDbFile value of {@link #ACCESS_ALLOW_URI_PER_DB_POLICYFILE},
+   * validation of per-db policy files depends on it
+   */
+  private ParsedPolicyFile parsePolicyFile(FileSystem fileSystem, Path path,
+      @Nullable String database, long modificationTime, @Nullable ParsedPolicyFile previous,
+      boolean allowURIPerDbFile, PrivilegeDictionary dictionary)
+          throws IOException {
+    // the flag only matters for the validation of text files, a snapshot
+    // carries the flag it was compiled with
+    if(previous != null && !(previous.path.equals(path) &&
+        (previous.snapshotDatabaseRoles != null ||
+        previous.allowURIPerDbFile == allowURIPerDbFile))) {
+      previous = null;
+    }
+    if(previous != null && previous.modificationTime == modificationTime) {
+      LOGGER.debug("{} is unchanged", path);
+      adopt(previous, dictionary);
+      return previous;
+    }
+    // the content is hashed while it is parsed so it is read only once
+    final Map<String, Map<String, String>> sections = Maps.newHashMap();
+    byte[] snapshotContent = null;
+    Hasher hasher = Hashing.md5().newHasher();
+    LOGGER.info("Parsing " + path);
+    InputStream inputStream = new BufferedInputStream(
+        new HashingInputStream(fileSystem.open(path), hasher));
+    try {
+      byte[] header = new byte[4];
+      inputStream.mark(header.length);
+      int headerLength = ByteStreams.read(inputStream, header, 0, header.length);
+      inputStream.reset();
+      if(database == null && headerLength == header.length && PolicySnapshot.isSnapshot(header)) {
+        snapshotContent = ByteStreams.toByteArray(inputStream);
       } else {
-        for(Map.Entry<String, String> entry : filesSection.entrySet()) {
-          String database = Strings.nullToEmpty(entry.getKey()).trim().toLowerCase();
-          Path perDbPolicy = new Path(Strings.nullToEmpty(entry.getValue()).trim());
-          if(isRelative(perDbPolicy)) {
-            perDbPolicy = new Path(resourcePath.getParent(), perDbPolicy);
-          }
-          try {
-            LOGGER.info("Parsing " + perDbPolicy);
-            Ini perDbIni = PolicyFiles.loadFromPath(perDbPolicy.getFileSystem(conf), perDbPolicy);
-            if(perDbIni.containsKey(USERS)) {
-              throw new ConfigurationException("Per-db policy files cannot contain " + USERS + " section");
-            }
-            if(perDbIni.containsKey(DATABASES)) {
-              throw new ConfigurationException("Per-db policy files cannot contain " + DATABASES + " section");
-            }
-            ImmutableSetMultimap<String, String> currentDbRoles = parseIni(database, perDbIni);
-            perDatabaseRoles.put(database, currentDbRoles);
-            perDbResources.add(perDbPolicy);
-          } catch (Exception e) {
-            LOGGER.error("Error processing key " + entry.getKey() + ", skipping " + entry.getValue(), e);
+        PolicyFileParser.parse(inputStream, new PolicyFileParser.Handler() {
+          @Override
+          public void section(String name, Map<String, String> entries) {
+            sections.put(name, entries);
           }
+        });
+      }
+    } finally {
+      inputStream.close();
+    }
+    HashCode hash = hasher.hash();
+    if(previous != null && previous.hash.equals(hash)) {
+      LOGGER.info("Contents of " + path + " are unchanged");
+      adopt(previous, dictionary);
+      return new ParsedPolicyFile(previous, modificationTime);
+    }
+    if(snapshotContent != null) {
+      return readSnapshot(path, modificationTime, hash, snapshotContent, dictionary);
+    }
+    if(LOGGER.isDebugEnabled()) {
+      for(Map.Entry<String, Map<String, String>> section : sections.entrySet()) {
+        LOGGER.debug("Section: " + section.getKey());
+        for(Map.Entry<String, String> entry : section.getValue().entrySet()) {
+          LOGGER.debug(entry.getKey() + " = " + entry.getValue());
         }
       }
-      roles = new Roles(globalRoles, ImmutableMap.copyOf(perDatabaseRoles));
-    } catch (Exception e) {
-      LOGGER.error("Error processing file, ignoring " + resourcePath, e);
     }
-    rolesReference.set(roles);
+    ImmutableMap<String, String> databases = null;
+    if(database == null) {
+      Map<String, String> filesSection = sections.get(DATABASES);
+      if(filesSection != null) {
+        databases = ImmutableMap.copyOf(filesSection);
+      }
+    } else {
+      if(sections.containsKey(USERS)) {
+        throw new ConfigurationException("Per-db policy files cannot contain " + USERS + " section");
+      }
+      if(sections.containsKey(DATABASES)) {
+        throw new ConfigurationException("Per-db policy files cannot contain " + DATABASES + " section");
+      }
+    }
+    GroupRoles roles = parseIni(database, sections, allowURIPerDbFile, dictionary);
+    return new ParsedPolicyFile(path, modificationTime, hash, allowURIPerDbFile, roles,
+        databases, null);
+  }
+
+  /**
+   * Add the privileges of a file which is not read again to the dictionary
+   * so that they stay shared with the files of the next policy
+   */
+  private static void adopt(ParsedPolicyFile policyFile, PrivilegeDictionary dictionary) {
+    adopt(policyFile.roles, dictionary);
+    if(policyFile.snapshotDatabaseRoles != null) {
+      for(GroupRoles roles : policyFile.snapshotDatabaseRoles.values()) {
+        adopt(roles, dictionary);
+      }
+    }
+  }
+
+  private static void adopt(GroupRoles roles, PrivilegeDictionary dictionary) {
+    for(String privilege : roles.getRolePrivileges().values()) {
+      dictionary.getPermission(privilege);
+    }
+  }
+
+  /**
+   * Read a snapshot written by {@link PolicyCompiler}. The privileges were
+   * validated when it was written so only compiling them remains.
+   */
+  private ParsedPolicyFile readSnapshot(Path path, long modificationTime, HashCode hash,
+      byte[] content, PrivilegeDictionary dictionary) throws IOException {
+    LOGGER.info("Reading policy snapshot " + path);
+    PolicySnapshot snapshot = PolicySnapshot.read(content);
+    if(!serverName.equalsIgnoreCase(snapshot.getServerName())) {
+      throw new ConfigurationException("Policy snapshot " + path + " was compiled for server " +
+          snapshot.getServerName() + ", not " + serverName);
+    }
+    // snapshots hold the privileges of each group rather than its roles
+    ImmutableMap.Builder<String, GroupRoles> perDatabaseRoles = ImmutableMap.builder();
+    for(Map.Entry<String, ImmutableSetMultimap<String, String>> entry :
+        snapshot.getPerDatabaseRoles().entrySet()) {
+      perDatabaseRoles.put(entry.getKey(), GroupRoles.compile(entry.getValue(), dictionary));
+    }
+    return new ParsedPolicyFile(path, modificationTime, hash, snapshot.isAllowURIPerDbFile(),
+        GroupRoles.compile(snapshot.getGlobalRoles(), dictionary), null, perDatabaseRoles.build());
+  }
+
+  /**
+   * Stop reloading the policy in the background, if enabled
+   */
+  @Override
+  public void close() {
+    if(reloadExecutor != null) {
+      reloadExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return time in milliseconds of the last successful background
+   * reload or zero if there has been none
+   */
+  public long getLastReloadTime() {
+    return lastReloadTime;
+  }
+
+  /**
+   * @return duration in milliseconds of the last successful background reload
+   */
+  public long getLastReloadDuration() {
+    return lastReloadDuration;
+  }
+
+  /**
+   * @return number of times checking for modification or reloading the
+   * policy in the background failed
+   */
+  public long getReloadFailureCount() {
+    return reloadFailureCount.get();
   }
 
   /**
@@ -153,9 +594,10 @@ public class SimplePolicyEngine implements PolicyEngine {
   protected long getModificationTime() throws IOException {
     // if resource path has been deleted, throw all exceptions
     long result = fileSystem.getFileStatus(resourcePath).getModificationTime();
-    for(Path perDbPolicy : perDbResources) {
+    for(Path perDbPolicy : loadedPolicy.perDbModificationTimes.keySet()) {
       try {
-        result = Math.max(result, fileSystem.getFileStatus(perDbPolicy).getModificationTime());
+        result = Math.max(result, perDbPolicy.getFileSystem(conf)
+            .getFileStatus(perDbPolicy).getModificationTime());
       } catch (FileNotFoundException e) {
         // if a per-db file has been deleted, wait until the main
         // policy file has been updated before refreshing
@@ -164,34 +606,48 @@ public class SimplePolicyEngine implements PolicyEngine {
     return result;
   }
 
-  private ImmutableSetMultimap<String, String> parseIni(String database, Ini ini) {
-    Ini.Section privilegesSection = ini.getSection(ROLES);
+  private long getResourceModificationTime() {
+    try {
+      return fileSystem.getFileStatus(resourcePath).getModificationTime();
+    } catch (IOException e) {
+      LOGGER.warn("Error checking modification time of " + resourcePath, e);
+      return -1L;
+    }
+  }
+
+  private GroupRoles parseIni(String database,
+      Map<String, Map<String, String>> sections,
+      boolean allowURIPerDbFile, PrivilegeDictionary dictionary) {
+    Map<String, String> privilegesSection = sections.get(ROLES);
     boolean invalidConfiguration = false;
     if (privilegesSection == null) {
       LOGGER.warn("Section {} empty for {}", ROLES, resourcePath);
       invalidConfiguration = true;
     }
-    Ini.Section groupsSection = ini.getSection(GROUPS);
+    Map<String, String> groupsSection = sections.get(GROUPS);
     if (groupsSection == null) {
       LOGGER.warn("Section {} empty for {}", GROUPS, resourcePath);
       invalidConfiguration = true;
     }
     if (!invalidConfiguration) {
-      return parsePermissions(database, privilegesSection, groupsSection);
+      return parsePermissions(database, privilegesSection, groupsSection, allowURIPerDbFile,
+          dictionary);
     }
-    return ImmutableSetMultimap.of();
+    return GroupRoles.of();
   }
 
-  private ImmutableSetMultimap<String, String> parsePermissions(@Nullable String database,
-      Ini.Section rolesSection, Ini.Section groupsSection) {
-    ImmutableSetMultimap.Builder<String, String> resultBuilder = ImmutableSetMultimap.builder();
-    Multimap<String, String> roleNameToPrivilegeMap = HashMultimap
+  private GroupRoles parsePermissions(@Nullable String database,
+      Map<String, String> rolesSection, Map<String, String> groupsSection, boolean allowURIPerDbFile,
+      PrivilegeDictionary dictionary) {
+    ImmutableSetMultimap.Builder<String, String> groupRoles = ImmutableSetMultimap.builder();
+    // ordered so that validation errors are reported in file order
+    Multimap<String, String> roleNameToPrivilegeMap = LinkedHashMultimap
         .create();
-    List<? extends RoleValidator> validators = Lists.newArrayList(
+    PolicyValidator validator = new PolicyValidator(Lists.newArrayList(
         new ServersAllIsInvalid(),
         new DatabaseMustMatch(),
-        new DatabaseRequiredInRole(),
-        new ServerNameMustMatch(serverName));
+        new DatabaseRequiredInRole(allowURIPerDbFile),
+        new ServerNameMustMatch(serverName)));
     for (Map.Entry<String, String> entry : rolesSection.entrySet()) {
       String roleName = Strings.nullToEmpty(entry.getKey()).trim();
       String roleValue = Strings.nullToEmpty(entry.getValue()).trim();
@@ -212,30 +668,26 @@ public class SimplePolicyEngine implements PolicyEngine {
           .toPermissionStrings(roleValue);
       if (!invalidConfiguration && roles != null) {
         for(String role : roles) {
-          for(RoleValidator validator : validators) {
-            validator.validate(database, role.trim());
-          }
+          roleNameToPrivilegeMap.put(roleName, dictionary.intern(role.trim()));
         }
-        roleNameToPrivilegeMap.putAll(roleName, roles);
       }
     }
+    validator.validate(database, roleNameToPrivilegeMap);
     Splitter roleSplitter = ROLE_SPLITTER.omitEmptyStrings().trimResults();
     for (Map.Entry<String, String> entry : groupsSection.entrySet()) {
       String groupName = Strings.nullToEmpty(entry.getKey()).trim();
       String groupPrivileges = Strings.nullToEmpty(entry.getValue()).trim();
-      Collection<String> resolvedGroupPrivileges = Sets.newHashSet();
       for (String roleName : roleSplitter.split(groupPrivileges)) {
         if (roleNameToPrivilegeMap.containsKey(roleName)) {
-          resolvedGroupPrivileges.addAll(roleNameToPrivilegeMap
-              .get(roleName));
+          groupRoles.put(groupName, roleName);
         } else {
           LOGGER.warn("Role {} for group {} does not exist in privileges section in {}",
               new Object[] { roleName, groupName, resourcePath });
         }
       }
-      resultBuilder.putAll(groupName, resolvedGroupPrivileges);
     }
-    return resultBuilder.build();
+    return GroupRoles.compile(groupRoles.build(),
+        ImmutableSetMultimap.copyOf(roleNameToPrivilegeMap), dictionary);
   }
 
 
@@ -246,17 +698,8 @@ public class SimplePolicyEngine implements PolicyEngine {
   @Override
   public ImmutableSetMultimap<String, String> getPermissions(List<Authorizable> authorizables, List<String> groups) {
     Roles roles = rolesReference.get();
-    String database = null;
-    Boolean isURI = false;
-    for(Authorizable authorizable : authorizables) {
-      if(authorizable instanceof Database) {
-        database = authorizable.getName();
-      }
-      if (authorizable instanceof AccessURI) {
-        isURI = true;
-      }
-    }
-
+    String database = getDatabase(authorizables);
+    Boolean isURI = isURI(authorizables);
     if(LOGGER.isDebugEnabled()) {
       LOGGER.debug("Getting permissions for {} via {}", groups, database);
     }
@@ -270,4 +713,150 @@ public class SimplePolicyEngine implements PolicyEngine {
     }
     return result;
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ImmutableSet<Permission> getCompiledPermissions(List<Authorizable> authorizables, List<String> groups) {
+    Roles roles = rolesReference.get();
+    String database = getDatabase(authorizables);
+    Boolean isURI = isURI(authorizables);
+    ImmutableSet.Builder<Permission> resultBuilder = ImmutableSet.builder();
+    for(String group : groups) {
+      resultBuilder.addAll(roles.getPermissions(database, group, isURI));
+    }
+    return resultBuilder.build();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  @Nullable
+  static String getDatabase(List<Authorizable> authorizables) {
+    String database = null;
+    for(Authorizable authorizable : authorizables) {
+      if(authorizable instanceof Database) {
+        database = authorizable.getName();
+      }
+    }
+    return database;
+  }
+
+  static Boolean isURI(List<Authorizable> authorizables) {
+    for(Authorizable authorizable : authorizables) {
+      if (authorizable instanceof AccessURI) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Holds the engine weakly so an engine which is no longer referenced,
+   * but was not closed, stops its reload thread.
+   */
+  private static class ReloadTask implements Runnable {
+    private final WeakReference<SimplePolicyEngine> engineReference;
+    private final ScheduledExecutorService executor;
+
+    ReloadTask(SimplePolicyEngine engine, ScheduledExecutorService executor) {
+      this.engineReference = new WeakReference<SimplePolicyEngine>(engine);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      SimplePolicyEngine engine = engineReference.get();
+      if(engine == null) {
+        executor.shutdown();
+        return;
+      }
+      try {
+        engine.reloadIfModified();
+      } catch (Throwable t) {
+        // an exception would cancel the scheduled task
+        engine.reloadFailureCount.incrementAndGet();
+        LOGGER.error("Unexpected error reloading " + engine.resourcePath, t);
+      }
+    }
+  }
+
+  /**
+   * The policy currently in use and what it was built from
+   */
+  private static class LoadedPolicy {
+    private final Roles roles;
+    /**
+     * Privileges of the files read for this policy, files which are not
+     * read again when it is reloaded keep sharing them
+     */
+    private final PrivilegeDictionary dictionary;
+    /**
+     * Modification time of the global policy file when it was
+     * read or -1 if it could not be determined
+     */
+    private final long modificationTime;
+    @Nullable
+    private final ParsedPolicyFile global;
+    private final ImmutableMap<String, ParsedPolicyFile> perDatabase;
+    /**
+     * All per-db policy files found, including invalid ones
+     */
+    private final ImmutableMap<Path, Long> perDbModificationTimes;
+
+    LoadedPolicy(Roles roles, PrivilegeDictionary dictionary, long modificationTime, @Nullable ParsedPolicyFile global,
+        ImmutableMap<String, ParsedPolicyFile> perDatabase,
+        ImmutableMap<Path, Long> perDbModificationTimes) {
+      this.roles = roles;
+      this.dictionary = dictionary;
+      this.modificationTime = modificationTime;
+      this.global = global;
+      this.perDatabase = perDatabase;
+      this.perDbModificationTimes = perDbModificationTimes;
+    }
+  }
+
+  /**
+   * A policy file and its contents parsed and validated
+   */
+  private static class ParsedPolicyFile {
+    private final Path path;
+    private final long modificationTime;
+    private final HashCode hash;
+    private final boolean allowURIPerDbFile;
+    private final GroupRoles roles;
+    /**
+     * Entries of the databases section, global policy file only
+     */
+    @Nullable
+    private final ImmutableMap<String, String> databases;
+    /**
+     * Roles of the per-db policy files, snapshots only
+     */
+    @Nullable
+    private final ImmutableMap<String, GroupRoles> snapshotDatabaseRoles;
+
+    ParsedPolicyFile(Path path, long modificationTime, HashCode hash, boolean allowURIPerDbFile,
+        GroupRoles roles, @Nullable ImmutableMap<String, String> databases,
+        @Nullable ImmutableMap<String, GroupRoles> snapshotDatabaseRoles) {
+      this.path = path;
+      this.modificationTime = modificationTime;
+      this.hash = hash;
+      this.allowURIPerDbFile = allowURIPerDbFile;
+      this.roles = roles;
+      this.databases = databases;
+      this.snapshotDatabaseRoles = snapshotDatabaseRoles;
+    }
+
+    ParsedPolicyFile(ParsedPolicyFile other, long modificationTime) {
+      this(other.path, modificationTime, other.hash, other.allowURIPerDbFile, other.roles,
+          other.databases, other.snapshotDatabaseRoles);
+    }
+  }
 }
@@ -24,18 +24,12 @@ package org.apache.sentry.provider.file;
 import static org.apache.sentry.provider.file.PolicyFileConstants.AUTHORIZABLE_JOINER;
 import static org.apache.sentry.provider.file.PolicyFileConstants.AUTHORIZABLE_SPLITTER;
 
-import java.io.File;
 import java.io.Serializable;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.List;
 
-import org.apache.commons.lang.text.StrSubstitutor;
 import org.apache.sentry.core.AccessConstants;
 import org.apache.sentry.core.Authorizable.AuthorizableType;
 import org.apache.shiro.authz.Permission;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
@@ -45,11 +39,10 @@ import com.google.common.collect.Lists;
 
 // XXX this class is made ugly by the fact that Action is not a Authorizable.
 public class WildcardPermission implements Permission, Serializable {
-  private static final Logger LOGGER = LoggerFactory
-      .getLogger(WildcardPermission.class);
   private static final long serialVersionUID = -6785051263922740818L;
 
   private final ImmutableList<KeyValue> parts;
+  private final int hashCode;
 
   public WildcardPermission(String wildcardString) {
     wildcardString = Strings.nullToEmpty(wildcardString).trim();
@@ -67,8 +60,22 @@ public class WildcardPermission implements Permission, Serializable {
       throw new AssertionError("Should never occur: " + wildcardString);
     }
     this.parts = ImmutableList.copyOf(parts);
+    this.hashCode = this.parts.hashCode();
   }
 
+  /**
+   * Build a permission from parts which are already split, e.g. a request
+   * assembled from authorizables, so no string parsing is required.
+   */
+  public WildcardPermission(List<KeyValue> parts) {
+    Preconditions.checkArgument(!parts.isEmpty(), "Permission must have at least one part");
+    this.parts = ImmutableList.copyOf(parts);
+    this.hashCode = this.parts.hashCode();
+  }
+
+  ImmutableList<KeyValue> getParts() {
+    return parts;
+  }
 
   @Override
   public boolean implies(Permission p) {
@@ -125,7 +132,7 @@ public class WildcardPermission implements Permission, Serializable {
       /* permission request is to match with any object of given type */
       return true;
     } else if(policyPart.getKey().equalsIgnoreCase(AuthorizableType.URI.name())) {
-      return impliesURI(policyPart.getValue(), requestPart.getValue());
+      return policyPart.getPolicyURI().implies(requestPart.getRequestURI());
     }
     return false;
   }
@@ -136,34 +143,7 @@ public class WildcardPermission implements Permission, Serializable {
    */
   @VisibleForTesting
   protected static boolean impliesURI(String policy, String request) {
-    try {
-      URI policyURI = new URI(new StrSubstitutor(System.getProperties()).replace(policy));
-      URI requestURI = new URI(request);
-      if(policyURI.getScheme() == null || policyURI.getPath() == null) {
-        LOGGER.warn("Policy URI " + policy + " is not valid. Either no scheme or no path.");
-        return false;
-      }
-      if(requestURI.getScheme() == null || requestURI.getPath() == null) {
-        LOGGER.warn("Request URI " + request + " is not valid. Either no scheme or no path.");
-        return false;
-      }
-      // schemes are equal &&
-      // request path does not contain relative parts /a/../b &&
-      // request path starts with policy path &&
-      // authorities (nullable) are equal
-      String requestPath = requestURI.getPath() + File.separator;
-      String policyPath = policyURI.getPath() + File.separator;
-      if(policyURI.getScheme().equals(requestURI.getScheme()) &&
-          requestURI.getPath().equals(new URI(request).normalize().getPath()) &&
-          requestPath.startsWith(policyPath) &&
-          Strings.nullToEmpty(policyURI.getAuthority()).equals(Strings.nullToEmpty(requestURI.getAuthority()))) {
-        return true;
-      }
-      return false;
-    } catch (URISyntaxException e) {
-      LOGGER.warn("Request URI " + request + " is not a URI", e);
-      return false;
-    }
+    return ParsedURI.parsePolicy(policy).implies(ParsedURI.parseRequest(request));
   }
 
   @Override
@@ -182,7 +162,7 @@ public class WildcardPermission implements Permission, Serializable {
 
   @Override
   public int hashCode() {
-    return parts.hashCode();
+    return hashCode;
   }
 
 }
\ No newline at end of file
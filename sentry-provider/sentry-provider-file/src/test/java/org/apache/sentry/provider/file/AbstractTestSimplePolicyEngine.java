@@ -28,6 +28,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.sentry.core.Authorizable;
 import org.apache.sentry.core.Database;
 import org.apache.sentry.provider.file.PolicyEngine;
+import org.apache.shiro.authz.Permission;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -136,6 +137,21 @@ public abstract class AbstractTestSimplePolicyEngine {
         .toString());
   }
 
+  @Test
+  public void testCompiledPermissions() throws Exception {
+    authorizables.add(new Database("other_group_db"));
+    for(String group : list("admin", "manager", "analyst", "jranalyst", "other_group")) {
+      Set<String> expected = new TreeSet<String>(policy.getPermissions(authorizables, list(group)).values());
+      Set<String> actual = new TreeSet<String>();
+      for(Permission permission : policy.getCompiledPermissions(authorizables, list(group))) {
+        for(WildcardPermission wildcardPermission : ((PermissionTrie)permission).getPermissions()) {
+          actual.add(wildcardPermission.toString());
+        }
+      }
+      Assert.assertEquals(group, expected, actual);
+    }
+  }
+
   private static List<String> list(String... values) {
     return Lists.newArrayList(values);
   }
@@ -19,14 +19,13 @@ package org.apache.sentry.provider.file;
 import java.util.Collection;
 import java.util.List;
 
-import org.apache.sentry.provider.file.GroupMappingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 
-public class MockGroupMappingServiceProvider implements GroupMappingService {
+public class MockGroupMappingServiceProvider extends AbstractGroupMappingService {
   private static final Logger LOGGER = LoggerFactory
       .getLogger(MockGroupMappingServiceProvider.class);
   private final Multimap<String, String> userToGroupMap;
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.sentry.core.Action;
+import org.apache.sentry.core.Authorizable;
+import org.apache.sentry.core.Database;
+import org.apache.sentry.core.Server;
+import org.apache.sentry.core.Subject;
+import org.apache.sentry.core.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.google.common.io.Files;
+
+public class TestCachingAuthorizationProvider {
+  private static final Subject USER1 = new Subject("user1");
+  private static final Server SERVER1 = new Server("server1");
+  private static final EnumSet<Action> SELECT = EnumSet.of(Action.SELECT);
+
+  private File baseDir;
+  private File iniFile;
+  private PolicyFile policyFile;
+  private SimplePolicyEngine policy;
+  private Multimap<String, String> userToGroups;
+  private CachingAuthorizationProvider authzProvider;
+
+  @Before
+  public void setup() throws IOException {
+    baseDir = Files.createTempDir();
+    iniFile = new File(baseDir, "policy.ini");
+    policyFile = new PolicyFile();
+    policyFile.addRolesToGroup("group1", "role1")
+      .addPermissionsToRole("role1", "server=server1->db=db1->table=*->action=select");
+    policyFile.write(iniFile);
+    policy = new SimplePolicyEngine("file://" + iniFile.getPath(), SERVER1.getName());
+    userToGroups = HashMultimap.create();
+    userToGroups.put(USER1.getName(), "group1");
+    authzProvider = new CachingAuthorizationProvider(new ResourceAuthorizationProvider(policy,
+        new MockGroupMappingServiceProvider(userToGroups)) {}, 100L, 60000L);
+  }
+
+  @After
+  public void teardown() throws IOException {
+    if(baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Test
+  public void testHitAndMiss() throws Exception {
+    Assert.assertTrue(authzProvider.hasAccess(USER1, table("db1", "tab1"), SELECT));
+    Assert.assertEquals(0, authzProvider.getHitCount());
+    Assert.assertEquals(1, authzProvider.getMissCount());
+    Assert.assertTrue(authzProvider.hasAccess(USER1, table("db1", "tab1"), SELECT));
+    Assert.assertEquals(1, authzProvider.getHitCount());
+    Assert.assertEquals(1, authzProvider.getMissCount());
+    // denials are cached too
+    Assert.assertFalse(authzProvider.hasAccess(USER1, table("db2", "tab1"), SELECT));
+    Assert.assertFalse(authzProvider.hasAccess(USER1, table("db2", "tab1"), SELECT));
+    Assert.assertEquals(2, authzProvider.getHitCount());
+    Assert.assertEquals(2, authzProvider.getMissCount());
+    // actions are part of the key
+    Assert.assertFalse(authzProvider.hasAccess(USER1, table("db1", "tab1"),
+        EnumSet.of(Action.INSERT)));
+    Assert.assertEquals(3, authzProvider.getMissCount());
+    Assert.assertEquals(3, authzProvider.size());
+  }
+
+  @Test
+  public void testGroupChange() throws Exception {
+    Assert.assertTrue(authzProvider.hasAccess(USER1, table("db1", "tab1"), SELECT));
+    userToGroups.removeAll(USER1.getName());
+    userToGroups.put(USER1.getName(), "group2");
+    Assert.assertFalse(authzProvider.hasAccess(USER1, table("db1", "tab1"), SELECT));
+    Assert.assertEquals(0, authzProvider.getHitCount());
+  }
+
+  @Test
+  public void testPolicyReload() throws Exception {
+    Assert.assertTrue(authzProvider.hasAccess(USER1, table("db1", "tab1"), SELECT));
+    policyFile.removePermissionsFromRole("role1", "server=server1->db=db1->table=*->action=select");
+    policyFile.write(iniFile);
+    long generation = policy.getGeneration();
+    policy.parse();
+    Assert.assertEquals(generation + 1, policy.getGeneration());
+    Assert.assertFalse(authzProvider.hasAccess(USER1, table("db1", "tab1"), SELECT));
+    Assert.assertEquals(0, authzProvider.getHitCount());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    authzProvider = new CachingAuthorizationProvider(new ResourceAuthorizationProvider(policy,
+        new MockGroupMappingServiceProvider(userToGroups)) {}, 2L, 60000L);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(authzProvider.hasAccess(USER1, table("db1", "tab" + i), SELECT));
+    }
+    Assert.assertTrue(String.valueOf(authzProvider.size()), authzProvider.size() <= 2);
+    Assert.assertTrue(String.valueOf(authzProvider.getEvictionCount()),
+        authzProvider.getEvictionCount() >= 8);
+  }
+
+  private static List<Authorizable> table(String database, String table) {
+    return ImmutableList.<Authorizable>of(SERVER1, new Database(database), new Table(table));
+  }
+}
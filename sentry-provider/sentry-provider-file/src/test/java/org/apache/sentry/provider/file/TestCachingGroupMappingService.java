@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+
+public class TestCachingGroupMappingService {
+  private Multimap<String, String> userToGroups;
+  private List<Runnable> refreshes;
+  private Executor executor;
+
+  @Before
+  public void setup() {
+    userToGroups = HashMultimap.create();
+    userToGroups.put("user1", "group1");
+    refreshes = Lists.newArrayList();
+    executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        refreshes.add(command);
+      }
+    };
+  }
+
+  @Test
+  public void testHitAndMiss() throws Exception {
+    CachingGroupMappingService groupService = newService(60000L, 60000L, 60000L);
+    Assert.assertEquals(ImmutableList.of("group1"), groupService.getGroups("user1"));
+    Assert.assertEquals(ImmutableList.of("group1"), groupService.getGroups("user1"));
+    Assert.assertEquals(1, groupService.getHitCount());
+    Assert.assertEquals(1, groupService.getMissCount());
+    Assert.assertEquals(1, groupService.getLookupCount());
+    Assert.assertTrue(groupService.getMaxLookupTimeNanos() <= groupService.getTotalLookupTimeNanos());
+    // groups are not looked up again until they are stale
+    userToGroups.put("user1", "group2");
+    Assert.assertEquals(ImmutableList.of("group1"), groupService.getGroups("user1"));
+    Assert.assertEquals(1, groupService.getLookupCount());
+  }
+
+  @Test
+  public void testRefreshReturnsStaleGroups() throws Exception {
+    CachingGroupMappingService groupService = newService(60000L, 1L, 60000L);
+    Assert.assertEquals(ImmutableList.of("group1"), groupService.getGroups("user1"));
+    userToGroups.removeAll("user1");
+    userToGroups.put("user1", "group2");
+    Thread.sleep(10L);
+    // the stale groups are returned while they are refreshed
+    Assert.assertEquals(ImmutableList.of("group1"), groupService.getGroups("user1"));
+    Assert.assertEquals(1, refreshes.size());
+    Assert.assertEquals(1, groupService.getRefreshCount());
+    refreshes.remove(0).run();
+    Assert.assertEquals(ImmutableList.of("group2"), groupService.getGroups("user1"));
+    Assert.assertEquals(2, groupService.getLookupCount());
+  }
+
+  @Test
+  public void testNegativeCaching() throws Exception {
+    CachingGroupMappingService groupService = newService(60000L, 60000L, 60000L);
+    Assert.assertEquals(ImmutableList.of(), groupService.getGroups("user2"));
+    Assert.assertEquals(ImmutableList.of(), groupService.getGroups("user2"));
+    Assert.assertEquals(1, groupService.getNegativeHitCount());
+    Assert.assertEquals(1, groupService.getLookupCount());
+
+    // unknown users expire after the negative time to live
+    groupService = newService(60000L, 60000L, 1L);
+    Assert.assertEquals(ImmutableList.of(), groupService.getGroups("user2"));
+    userToGroups.put("user2", "group2");
+    Thread.sleep(10L);
+    Assert.assertEquals(ImmutableList.of("group2"), groupService.getGroups("user2"));
+    Assert.assertEquals(2, groupService.getMissCount());
+  }
+
+  @Test
+  public void testBulkLookup() throws Exception {
+    userToGroups.put("user2", "group2");
+    CachingGroupMappingService groupService = newService(60000L, 60000L, 60000L);
+    Assert.assertEquals(ImmutableList.of("group1"), groupService.getGroups("user1"));
+    Map<String, List<String>> groups = groupService.getGroups(
+        Arrays.asList("user1", "user2", "user3", "user2"));
+    Assert.assertEquals(ImmutableMap.of("user1", ImmutableList.of("group1"),
+        "user2", ImmutableList.of("group2"), "user3", ImmutableList.of()), groups);
+    Assert.assertEquals(1, groupService.getHitCount());
+    Assert.assertEquals(3, groupService.getLookupCount());
+    // the bulk lookup populated the cache
+    Assert.assertEquals(ImmutableList.of("group2"), groupService.getGroups("user2"));
+    Assert.assertEquals(3, groupService.getLookupCount());
+  }
+
+  @Test
+  public void testCreate() throws Exception {
+    GroupMappingService delegate = new MockGroupMappingServiceProvider(userToGroups);
+    Configuration conf = new Configuration(false);
+    Assert.assertSame(delegate, CachingGroupMappingService.create(conf, delegate));
+    conf.setLong(CachingGroupMappingService.GROUPS_CACHE_TTL_MS, 1000L);
+    Assert.assertTrue(CachingGroupMappingService.create(conf, delegate)
+        instanceof CachingGroupMappingService);
+  }
+
+  private CachingGroupMappingService newService(long ttlMs, long refreshMs, long negativeTtlMs) {
+    return new CachingGroupMappingService(new MockGroupMappingServiceProvider(userToGroups),
+        ttlMs, refreshMs, negativeTtlMs, executor);
+  }
+}
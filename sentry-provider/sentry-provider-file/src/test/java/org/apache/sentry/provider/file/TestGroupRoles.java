@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+public class TestGroupRoles {
+  private static final String PERMISSION_DB1 = "server=server1->db=db1->table=*->action=select";
+  private static final String PERMISSION_DB2 = "server=server1->db=db2->table=*->action=select";
+
+  private final GroupRoles groupRoles = GroupRoles.compile(
+      ImmutableSetMultimap.of("group1", "role1", "group2", "role1", "group2", "role2"),
+      ImmutableSetMultimap.of("role1", PERMISSION_DB1, "role2", PERMISSION_DB2),
+      new PrivilegeDictionary());
+
+  @Test
+  public void testPrivileges() throws Exception {
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1), groupRoles.getPrivileges("group1"));
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1, PERMISSION_DB2),
+        groupRoles.getPrivileges("group2"));
+    Assert.assertTrue(groupRoles.getPrivileges("group3").isEmpty());
+    Assert.assertEquals(ImmutableSetMultimap.of("group1", PERMISSION_DB1, "group2", PERMISSION_DB1,
+        "group2", PERMISSION_DB2), groupRoles.getGroupPrivileges());
+  }
+
+  @Test
+  public void testRolesSharedByGroups() throws Exception {
+    PermissionTrie group1 = groupRoles.getPermissions("group1");
+    PermissionTrie group2 = groupRoles.getPermissions("group2");
+    Assert.assertSame(group1, groupRoles.getPermissions("group1"));
+    Assert.assertEquals(1, group1.getPermissions().size());
+    Assert.assertEquals(2, group2.getPermissions().size());
+    Assert.assertSame(group1.getPermissions().get(0), group2.getPermissions().get(0));
+    Assert.assertNull(groupRoles.getPermissions("group3"));
+  }
+
+  @Test
+  public void testGroupPrivileges() throws Exception {
+    GroupRoles flattened = GroupRoles.compile(groupRoles.getGroupPrivileges(),
+        new PrivilegeDictionary());
+    Assert.assertEquals(groupRoles.getGroupPrivileges(), flattened.getGroupPrivileges());
+    Assert.assertEquals(ImmutableSet.of("group1"), flattened.getGroupRoles().get("group1"));
+  }
+
+  @Test
+  public void testUnion() throws Exception {
+    GroupRoles union = GroupRoles.union(ImmutableSet.of(
+        GroupRoles.compile(ImmutableSetMultimap.of("group1", "role1"),
+            ImmutableSetMultimap.of("role1", PERMISSION_DB1), new PrivilegeDictionary()),
+        GroupRoles.compile(ImmutableSetMultimap.of("group2", "role1"),
+            ImmutableSetMultimap.of("role1", PERMISSION_DB2), new PrivilegeDictionary())));
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1), union.getPrivileges("group1"));
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB2), union.getPrivileges("group2"));
+  }
+}
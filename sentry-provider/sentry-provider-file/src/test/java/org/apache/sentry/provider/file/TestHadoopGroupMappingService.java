@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.security.Groups;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class TestHadoopGroupMappingService {
+
+  @Test
+  public void testConcurrentLookups() throws Exception {
+    // each lookup waits for the others to start, which only succeeds if
+    // they run concurrently
+    StubGroups groups = new StubGroups(new CountDownLatch(3));
+    Map<String, List<String>> result = new HadoopGroupMappingService(groups)
+        .getGroups(Lists.newArrayList("user1", "user2", "user1", "user3", "user2"));
+    Assert.assertEquals(3, result.size());
+    for (String user : ImmutableList.of("user1", "user2", "user3")) {
+      Assert.assertEquals(ImmutableList.of("group_" + user), result.get(user));
+      Assert.assertEquals(1, groups.getLookupCount(user));
+    }
+    Assert.assertFalse(groups.timedOut);
+  }
+
+  @Test
+  public void testFailedLookupsAreIsolated() throws Exception {
+    StubGroups groups = new StubGroups(null);
+    Map<String, List<String>> result = new HadoopGroupMappingService(groups)
+        .getGroups(Lists.newArrayList("user1", "io_error", "runtime_error", "user2"));
+    Assert.assertEquals(4, result.size());
+    Assert.assertEquals(ImmutableList.of("group_user1"), result.get("user1"));
+    Assert.assertEquals(ImmutableList.of("group_user2"), result.get("user2"));
+    Assert.assertTrue(result.get("io_error").isEmpty());
+    Assert.assertTrue(result.get("runtime_error").isEmpty());
+  }
+
+  @Test
+  public void testInterrupted() throws Exception {
+    StubGroups groups = new StubGroups(null);
+    Map<String, List<String>> result;
+    Thread.currentThread().interrupt();
+    try {
+      result = new HadoopGroupMappingService(groups)
+          .getGroups(Lists.newArrayList("user1", "user2", "runtime_error", "user3"));
+    } finally {
+      // the interrupt is preserved for the caller
+      Assert.assertTrue(Thread.interrupted());
+    }
+    Assert.assertEquals(4, result.size());
+    for (String user : ImmutableList.of("user1", "user2", "user3")) {
+      Assert.assertEquals(ImmutableList.of("group_" + user), result.get(user));
+    }
+    Assert.assertTrue(result.get("runtime_error").isEmpty());
+  }
+
+  private static class StubGroups extends Groups {
+    private final CountDownLatch started;
+    private final ConcurrentMap<String, AtomicInteger> lookupCounts =
+        new ConcurrentHashMap<String, AtomicInteger>();
+    private volatile boolean timedOut;
+
+    StubGroups(CountDownLatch started) {
+      super(new Configuration(false));
+      this.started = started;
+    }
+
+    @Override
+    public List<String> getGroups(String user) throws IOException {
+      lookupCounts.putIfAbsent(user, new AtomicInteger());
+      lookupCounts.get(user).incrementAndGet();
+      if (started != null) {
+        started.countDown();
+        try {
+          if (!started.await(10, TimeUnit.SECONDS)) {
+            timedOut = true;
+          }
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+      }
+      if ("io_error".equals(user)) {
+        throw new IOException("Lookup failed for " + user);
+      }
+      if ("runtime_error".equals(user)) {
+        throw new IllegalStateException("Lookup failed for " + user);
+      }
+      return Lists.newArrayList("group_" + user);
+    }
+
+    int getLookupCount(String user) {
+      AtomicInteger count = lookupCounts.get(user);
+      return count == null ? 0 : count.get();
+    }
+  }
+}
@@ -19,7 +19,9 @@ package org.apache.sentry.provider.file;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.fs.Path;
@@ -66,4 +68,39 @@ public class TestLocalGroupMapping {
     List <String> unknownGroupsFromResource = localGroupMapping.getGroups("unknown");
     Assert.assertTrue("List not empty " + unknownGroupsFromResource, unknownGroupsFromResource.isEmpty());
   }
+
+  @Test
+  public void testBulkGroupMapping() {
+    Map<String, List<String>> groups = localGroupMapping.getGroups(
+        Arrays.asList("foo", "bar", "unknown", "foo"));
+    Assert.assertEquals(3, groups.size());
+    Assert.assertArrayEquals(fooGroups, groups.get("foo").toArray());
+    Assert.assertArrayEquals(barGroups, groups.get("bar").toArray());
+    Assert.assertTrue(groups.get("unknown").isEmpty());
+  }
+
+  @Test
+  public void testReloadIfModified() throws Exception {
+    File iniFile = new File(baseDir, "users.ini");
+    PolicyFile policyFile = new PolicyFile();
+    policyFile.addGroupsToUser("foo", "admin");
+    policyFile.write(iniFile);
+    localGroupMapping = new LocalGroupMappingService(new Path(iniFile.getPath()));
+    Assert.assertFalse(localGroupMapping.reloadIfModified());
+    List<String> fooGroups = localGroupMapping.getGroups("foo");
+
+    policyFile.addGroupsToUser("bar", "analyst");
+    policyFile.write(iniFile);
+    Assert.assertTrue(iniFile.setLastModified(iniFile.lastModified() + 2000L));
+    Assert.assertTrue(localGroupMapping.reloadIfModified());
+    Assert.assertEquals(Arrays.asList("analyst"), localGroupMapping.getGroups("bar"));
+    // lists handed out earlier are unchanged
+    Assert.assertEquals(Arrays.asList("admin"), fooGroups);
+
+    // a file which cannot be read keeps the current mapping
+    Assert.assertTrue(iniFile.delete());
+    Assert.assertFalse(localGroupMapping.reloadIfModified());
+    Assert.assertEquals(1, localGroupMapping.getReloadFailureCount());
+    Assert.assertEquals(Arrays.asList("analyst"), localGroupMapping.getGroups("bar"));
+  }
 }
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.sentry.core.AccessURI;
+import org.apache.sentry.core.Action;
+import org.apache.sentry.core.Authorizable;
+import org.apache.sentry.core.Database;
+import org.apache.sentry.core.Server;
+import org.apache.sentry.core.Subject;
+import org.apache.sentry.core.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.io.Files;
+
+public class TestMappedPolicyEngine {
+  private static final String PERMISSION_DB1 = "server=server1->db=db1->table=*->action=select";
+  private static final String PERMISSION_DB2 = "server=server1->db=db2->table=tab1->action=insert";
+  private static final String PERMISSION_URI = "server=server1->uri=file:///path/to/dir";
+  private static final Server SERVER1 = new Server("server1");
+  private static final List<String> GROUPS = Lists.newArrayList("group1", "group2");
+
+  private File baseDir;
+  private File iniFile;
+  private File snapshotFile;
+  private PolicyFile policyFile;
+
+  @Before
+  public void setup() throws Exception {
+    baseDir = Files.createTempDir();
+    iniFile = new File(baseDir, "policy.ini");
+    File dbFile = new File(baseDir, "db2.ini");
+    snapshotFile = new File(baseDir, "policy.snapshot");
+    PolicyFile dbPolicyFile = new PolicyFile();
+    dbPolicyFile.addRolesToGroup("group1", "role2")
+      .addPermissionsToRole("role2", PERMISSION_DB2, PERMISSION_URI);
+    dbPolicyFile.write(dbFile);
+    policyFile = new PolicyFile();
+    policyFile.addRolesToGroup("group1", "role1")
+      .addRolesToGroup("group2", "role1")
+      .addPermissionsToRole("role1", PERMISSION_DB1)
+      .addDatabase("db2", dbFile.getPath());
+    policyFile.write(iniFile);
+    // the per-db file holds a URI
+    System.setProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE, "true");
+    compile();
+  }
+
+  @After
+  public void teardown() {
+    System.clearProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE);
+    if(baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Test
+  public void testSameAsSimplePolicyEngine() throws Exception {
+    SimplePolicyEngine simple = new SimplePolicyEngine(new Configuration(),
+        new Path("file://" + iniFile.getPath()), "server1");
+    MappedPolicyEngine mapped = new MappedPolicyEngine(new Configuration(), snapshotFile, "server1");
+    for(String database : new String[] {"db1", "db2", "db3"}) {
+      List<Authorizable> authorizables = ImmutableList.<Authorizable>of(SERVER1,
+          new Database(database), new Table("tab1"));
+      Assert.assertEquals(simple.getPermissions(authorizables, GROUPS),
+          mapped.getPermissions(authorizables, GROUPS));
+    }
+    Multimap<String, String> userToGroups = HashMultimap.create();
+    userToGroups.put("user1", "group1");
+    ResourceAuthorizationProvider provider = new ResourceAuthorizationProvider(mapped,
+        new MockGroupMappingServiceProvider(userToGroups)) {};
+    Subject user1 = new Subject("user1");
+    EnumSet<Action> select = EnumSet.of(Action.SELECT);
+    Assert.assertTrue(provider.hasAccess(user1, ImmutableList.<Authorizable>of(SERVER1,
+        new Database("db1"), new Table("tab1")), select));
+    Assert.assertTrue(provider.hasAccess(user1, ImmutableList.<Authorizable>of(SERVER1,
+        new Database("db2"), new Table("tab1")), EnumSet.of(Action.INSERT)));
+    Assert.assertFalse(provider.hasAccess(user1, ImmutableList.<Authorizable>of(SERVER1,
+        new Database("db2"), new Table("tab2")), EnumSet.of(Action.INSERT)));
+  }
+
+  @Test
+  public void testURIPerDbFile() throws Exception {
+    List<Authorizable> uri = ImmutableList.<Authorizable>of(SERVER1,
+        new AccessURI("file:///path/to/dir/file"));
+    Assert.assertTrue(new MappedPolicyEngine(new Configuration(), snapshotFile, "server1")
+        .getPermissions(uri, GROUPS).containsValue(PERMISSION_URI));
+    // the flag is the one the snapshot was written with
+    PolicySnapshot snapshot = PolicySnapshot.read(Files.toByteArray(snapshotFile));
+    PolicyCompiler.write(new Configuration(), new PolicySnapshot(snapshot.getServerName(), false,
+        snapshot.getGlobalRoles(), snapshot.getPerDatabaseRoles()),
+        new Path("file://" + snapshotFile.getPath()));
+    Assert.assertFalse(new MappedPolicyEngine(new Configuration(), snapshotFile, "server1")
+        .getPermissions(uri, GROUPS).containsValue(PERMISSION_URI));
+  }
+
+  @Test
+  public void testURIScopeIndependentOfDatabases() throws Exception {
+    for(int i = 0; i < 50; i++) {
+      File dbFile = new File(baseDir, "uri_db" + i + ".ini");
+      new PolicyFile().addRolesToGroup("group1", "role" + i)
+        .addPermissionsToRole("role" + i, "server=server1->uri=file:///path/db" + i)
+        .write(dbFile);
+      policyFile.addDatabase("uri_db" + i, dbFile.getPath());
+    }
+    policyFile.write(iniFile);
+    compile();
+    MappedPolicyEngine mapped = new MappedPolicyEngine(new Configuration(), snapshotFile,
+        "server1");
+    List<Authorizable> uri = ImmutableList.<Authorizable>of(SERVER1,
+        new AccessURI("file:///path/db49/file"));
+    List<String> groups = ImmutableList.of("group1");
+    // one for the global file and one for the union of the per-db files
+    Assert.assertEquals(2, mapped.getCompiledPermissions(uri, groups).size());
+    Assert.assertEquals(mapped.getCompiledPermissions(uri, groups),
+        mapped.getCompiledPermissions(uri, groups));
+    // the global file, db2 and one URI in each of the other files
+    Assert.assertEquals(53, mapped.getPermissions(uri, groups).size());
+  }
+
+  @Test
+  public void testReloadIfModified() throws Exception {
+    MappedPolicyEngine mapped = new MappedPolicyEngine(new Configuration(), snapshotFile, "server1");
+    Assert.assertFalse(mapped.reloadIfModified());
+    long generation = mapped.getGeneration();
+    policyFile.addPermissionsToRole("role1", "server=server1->db=db3");
+    policyFile.write(iniFile);
+    long modificationTime = snapshotFile.lastModified();
+    compile();
+    Assert.assertTrue(snapshotFile.setLastModified(modificationTime + 2000L));
+    Assert.assertTrue(mapped.reloadIfModified());
+    Assert.assertEquals(generation + 1, mapped.getGeneration());
+    Assert.assertTrue(mapped.getPermissions(ImmutableList.<Authorizable>of(SERVER1,
+        new Database("db3")), GROUPS).containsValue("server=server1->db=db3"));
+  }
+
+  @Test
+  public void testBackgroundReload() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setLong(SimplePolicyEngine.ACCESS_POLICY_RELOAD_INTERVAL_MS, 50L);
+    MappedPolicyEngine mapped = new MappedPolicyEngine(conf, snapshotFile, "server1");
+    try {
+      long generation = mapped.getGeneration();
+      long modificationTime = snapshotFile.lastModified();
+      compile();
+      Assert.assertTrue(snapshotFile.setLastModified(modificationTime + 2000L));
+      long deadline = System.currentTimeMillis() + 10000L;
+      while(mapped.getGeneration() == generation && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10L);
+      }
+      Assert.assertEquals(generation + 1, mapped.getGeneration());
+    } finally {
+      mapped.close();
+    }
+  }
+
+  @Test(expected=org.apache.shiro.config.ConfigurationException.class)
+  public void testOtherServerIsRejected() throws Exception {
+    new MappedPolicyEngine(new Configuration(), snapshotFile, "server2");
+  }
+
+  private void compile() throws IOException, Exception {
+    PolicyCompiler.write(new Configuration(), PolicyCompiler.compile(new Configuration(),
+        new Path("file://" + iniFile.getPath()), "server1"),
+        new Path("file://" + snapshotFile.getPath()));
+  }
+}
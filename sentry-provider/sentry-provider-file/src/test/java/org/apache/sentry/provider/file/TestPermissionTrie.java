@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sentry.provider.file;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.apache.sentry.core.AccessConstants;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TestPermissionTrie {
+
+  private static final String ALL = AccessConstants.ALL;
+
+  private static final String[] KEYS = {
+    "server", "db", "table", "uri", "action", "Server", "DB", "URI", "ACTION"
+  };
+  private static final String[] VALUES = {
+    ALL, "server1", "SERVER1", "server2", "db1", "Db1", "db2", "tab1", "select",
+    "SELECT", "insert", "k", "\u212A", "i", "\u0130", "\u0131", ""
+  };
+  private static final String[] URIS = {
+    ALL, "file:///path", "file:///path/to", "file:///PATH", "file:///path/../path",
+    "hdfs://namenode:8020/path", "hdfs://NAMENODE:8020/path", "hdfs:///path",
+    "file:///path/to/file", "hdfs://namenode:8020/path/to/file", "/path", "not a uri",
+    "file:///", "file:///path/", "file:///path/to/", "file:///pathx", "file:///path//to",
+    "hdfs://namenode:8020", "hdfs://namenode:8020/", "file:///path/./to"
+  };
+  private static final String[][] HIERARCHY = {
+    {"server", "db", "table", "action"},
+    {"server", "db", "action"},
+    {"server", "uri", "action"},
+    {"server", "action"},
+  };
+
+  @Test
+  public void testEmpty() throws Exception {
+    PermissionTrie trie = new PermissionTrie(Lists.<WildcardPermission>newArrayList());
+    assertFalse(trie.implies(create("server=server1")));
+    assertEquals(0, trie.getPermissions().size());
+  }
+
+  @Test
+  public void testNotWildcardPermission() throws Exception {
+    PermissionTrie trie = new PermissionTrie(Lists.newArrayList(create("server=*")));
+    assertFalse(trie.implies(trie));
+  }
+
+  @Test
+  public void testHierarchy() throws Exception {
+    PermissionTrie trie = new PermissionTrie(Lists.newArrayList(
+        create("server=server1->db=db1->table=*->action=select"),
+        create("server=server1->db=db2"),
+        create("server=server1->uri=hdfs://namenode:8020/path->action=*"),
+        create("server=server2->db=*->table=*->action=*")));
+    assertTrue(trie.implies(create("server=server1->db=db1->table=tab1->action=select")));
+    assertTrue(trie.implies(create("server=Server1->DB=DB1->table=tab1->action=SELECT")));
+    assertFalse(trie.implies(create("server=server1->db=db1->table=tab1->action=insert")));
+    assertTrue(trie.implies(create("server=server1->db=db2->table=tab1->action=insert")));
+    assertTrue(trie.implies(create("server=server1->db=*->table=*->action=select")));
+    assertFalse(trie.implies(create("server=server1->db=db1->table=tab1->action=*")));
+    assertTrue(trie.implies(create("server=server1->uri=hdfs://namenode:8020/path/a->action=insert")));
+    assertFalse(trie.implies(create("server=server1->uri=hdfs://namenode:8020/other->action=insert")));
+    assertTrue(trie.implies(create("server=server2->db=db3")));
+    assertTrue(trie.implies(create("server=server2")));
+    assertFalse(trie.implies(create("server=server1")));
+    assertFalse(trie.implies(create("server=server3->db=db1->table=tab1->action=select")));
+  }
+
+  @Test
+  public void testManyURIs() throws Exception {
+    List<WildcardPermission> permissions = Lists.newArrayList();
+    for (int i = 0; i < 500; i++) {
+      permissions.add(create("server=server1->uri=hdfs://namenode:8020/etl/job" + i + "->action=*"));
+    }
+    PermissionTrie trie = new PermissionTrie(permissions);
+    assertTrue(trie.implies(create("server=server1->uri=hdfs://namenode:8020/etl/job499/part-0->action=insert")));
+    assertTrue(trie.implies(create("server=server1->uri=hdfs://namenode:8020/etl/job7->action=insert")));
+    assertFalse(trie.implies(create("server=server1->uri=hdfs://namenode:8020/etl/job500->action=insert")));
+    assertFalse(trie.implies(create("server=server1->uri=hdfs://namenode:8020/etl->action=insert")));
+    assertFalse(trie.implies(create("server=server1->uri=hdfs://other:8020/etl/job7->action=insert")));
+    assertFalse(trie.implies(create("server=server1->uri=hdfs://namenode:8020/etl/job7/../job8->action=insert")));
+  }
+
+  /**
+   * The trie must give exactly the same answer as checking each
+   * permission with {@link WildcardPermission#implies}
+   */
+  @Test
+  public void testEquivalentToWildcardPermission() throws Exception {
+    long seed = System.currentTimeMillis();
+    Random random = new Random(seed);
+    for (int iteration = 0; iteration < 2000; iteration++) {
+      List<WildcardPermission> permissions = Lists.newArrayList();
+      int numPermissions = random.nextInt(8);
+      for (int i = 0; i < numPermissions; i++) {
+        permissions.add(randomPermission(random));
+      }
+      PermissionTrie trie = new PermissionTrie(permissions);
+      for (int i = 0; i < 50; i++) {
+        WildcardPermission request = randomPermission(random);
+        boolean expected = false;
+        for (WildcardPermission permission : permissions) {
+          expected |= permission.implies(request);
+        }
+        assertEquals("Seed " + seed + ", permissions " + permissions +
+            ", request " + request, expected, trie.implies(request));
+      }
+    }
+  }
+
+  private static WildcardPermission randomPermission(Random random) {
+    List<KeyValue> parts = Lists.newArrayList();
+    if (random.nextInt(4) == 0) {
+      // completely random keys
+      int length = 1 + random.nextInt(5);
+      for (int i = 0; i < length; i++) {
+        String key = pick(random, KEYS);
+        parts.add(new KeyValue(key, randomValue(random, key)));
+      }
+    } else {
+      // a well formed hierarchy, possibly truncated
+      String[] keys = HIERARCHY[random.nextInt(HIERARCHY.length)];
+      int length = 1 + random.nextInt(keys.length);
+      for (int i = 0; i < length; i++) {
+        parts.add(new KeyValue(keys[i], randomValue(random, keys[i])));
+      }
+    }
+    return new WildcardPermission(parts);
+  }
+
+  private static String randomValue(Random random, String key) {
+    if ("uri".equalsIgnoreCase(key)) {
+      return pick(random, URIS);
+    }
+    return pick(random, VALUES);
+  }
+
+  private static String pick(Random random, String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private static WildcardPermission create(String permission) {
+    return new WildcardPermission(permission);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.apache.shiro.config.Ini;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.io.Resources;
+
+public class TestPolicyFileParser {
+
+  @Test
+  public void testSectionsAndEntries() throws Exception {
+    Map<String, Map<String, String>> sections = parse(
+        "# comment\n" +
+        "; comment\n" +
+        "\n" +
+        "[groups]\n" +
+        "group1 = role1, role2\n" +
+        "group2:role3\n" +
+        "group3   role4\n" +
+        "[roles]\n" +
+        "role1 = server=server1->db=db1\n");
+    Assert.assertEquals(ImmutableMap.of(
+        "groups", ImmutableMap.of("group1", "role1, role2", "group2", "role3", "group3", "role4"),
+        "roles", ImmutableMap.of("role1", "server=server1->db=db1")), sections);
+  }
+
+  @Test
+  public void testContinuation() throws Exception {
+    Map<String, Map<String, String>> sections = parse(
+        "[roles]\n" +
+        "role1 = server=server1->db=db1, \\\n" +
+        "  server=server1->db=db2\n" +
+        "role2 = a\\\\\n" +
+        "role3 = b\n");
+    Assert.assertEquals(ImmutableMap.of(
+        "roles", ImmutableMap.of("role1", "server=server1->db=db1, server=server1->db=db2",
+            "role2", "a\\\\", "role3", "b")), sections);
+  }
+
+  @Test
+  public void testLaterDefinitionsReplaceEarlier() throws Exception {
+    Map<String, Map<String, String>> sections = parse(
+        "key = outside\n" +
+        "[empty]\n" +
+        "[groups]\n" +
+        "group1 = role1\n" +
+        "group1 = role2\n" +
+        "[groups]\n" +
+        "group2 = role3\n");
+    Assert.assertEquals(ImmutableMap.of(
+        "", ImmutableMap.of("key", "outside"),
+        "groups", ImmutableMap.of("group2", "role3")), sections);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingValue() throws Exception {
+    parse("[groups]\ngroup1 =\n");
+  }
+
+  @Test
+  public void testSameAsIni() throws Exception {
+    for (String resource : new String[] {"test-authz-provider.ini",
+        "test-authz-provider-other-group.ini", "test-authz-provider-local-group-mapping.ini"}) {
+      byte[] content = Resources.toByteArray(Resources.getResource(resource));
+      Ini ini = new Ini();
+      ini.load(new String(content, Charsets.UTF_8));
+      Map<String, Map<String, String>> expected = Maps.newHashMap();
+      for (String sectionName : ini.getSectionNames()) {
+        expected.put(sectionName, Maps.newHashMap(ini.getSection(sectionName)));
+      }
+      Assert.assertEquals(resource, expected, parse(new ByteArrayInputStream(content)));
+    }
+  }
+
+  private static Map<String, Map<String, String>> parse(String content) throws IOException {
+    return parse(new ByteArrayInputStream(content.getBytes(Charsets.UTF_8)));
+  }
+
+  private static Map<String, Map<String, String>> parse(InputStream inputStream)
+      throws IOException {
+    final Map<String, Map<String, String>> sections = Maps.newHashMap();
+    PolicyFileParser.parse(inputStream, new PolicyFileParser.Handler() {
+      @Override
+      public void section(String name, Map<String, String> entries) {
+        sections.put(name, entries);
+      }
+    });
+    return sections;
+  }
+}
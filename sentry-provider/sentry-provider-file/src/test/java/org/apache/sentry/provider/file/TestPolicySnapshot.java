@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.sentry.core.AccessURI;
+import org.apache.sentry.core.Authorizable;
+import org.apache.sentry.core.Database;
+import org.apache.sentry.core.Server;
+import org.apache.sentry.core.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class TestPolicySnapshot {
+  private static final String PERMISSION_DB1 = "server=server1->db=db1->table=*->action=select";
+  private static final String PERMISSION_DB2 = "server=server1->db=db2->table=tab1->action=insert";
+  private static final List<String> GROUPS = Lists.newArrayList("group1");
+
+  private File baseDir;
+  private File iniFile;
+  private File dbFile;
+  private File snapshotFile;
+  private PolicyFile policyFile;
+  private PolicyFile dbPolicyFile;
+
+  @Before
+  public void setup() throws IOException {
+    baseDir = Files.createTempDir();
+    iniFile = new File(baseDir, "policy.ini");
+    dbFile = new File(baseDir, "db2.ini");
+    snapshotFile = new File(baseDir, "policy.snapshot");
+    dbPolicyFile = new PolicyFile();
+    dbPolicyFile.addRolesToGroup("group1", "role2")
+      .addPermissionsToRole("role2", PERMISSION_DB2);
+    dbPolicyFile.write(dbFile);
+    policyFile = new PolicyFile();
+    policyFile.addRolesToGroup("group1", "role1")
+      .addPermissionsToRole("role1", PERMISSION_DB1)
+      .addDatabase("db2", dbFile.getPath());
+    policyFile.write(iniFile);
+  }
+
+  @After
+  public void teardown() {
+    if(baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Test
+  public void testCompileAndLoad() throws Exception {
+    PolicySnapshot snapshot = PolicyCompiler.compile(new Configuration(), path(iniFile), "server1");
+    Assert.assertEquals(ImmutableSetMultimap.of("group1", PERMISSION_DB1), snapshot.getGlobalRoles());
+    Assert.assertEquals(ImmutableSetMultimap.of("group1", PERMISSION_DB2),
+        snapshot.getPerDatabaseRoles().get("db2"));
+    PolicyCompiler.write(new Configuration(), snapshot, path(snapshotFile));
+
+    SimplePolicyEngine fromIni = new SimplePolicyEngine(new Configuration(), path(iniFile), "server1");
+    SimplePolicyEngine fromSnapshot = new SimplePolicyEngine(new Configuration(),
+        path(snapshotFile), "server1");
+    for(String database : new String[] {"db1", "db2", "db3"}) {
+      List<Authorizable> authorizables = ImmutableList.<Authorizable>of(new Server("server1"),
+          new Database(database), new Table("tab1"));
+      Assert.assertEquals(fromIni.getPermissions(authorizables, GROUPS),
+          fromSnapshot.getPermissions(authorizables, GROUPS));
+      Assert.assertEquals(fromIni.getCompiledPermissions(authorizables, GROUPS).size(),
+          fromSnapshot.getCompiledPermissions(authorizables, GROUPS).size());
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    PolicySnapshot snapshot = PolicyCompiler.compile(new Configuration(), path(iniFile), "server1");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    snapshot.write(out);
+    byte[] content = out.toByteArray();
+    Assert.assertTrue(PolicySnapshot.isSnapshot(content));
+    Assert.assertFalse(PolicySnapshot.isSnapshot(Files.toByteArray(iniFile)));
+    PolicySnapshot read = PolicySnapshot.read(content);
+    Assert.assertEquals("server1", read.getServerName());
+    Assert.assertEquals(snapshot.getGlobalRoles(), read.getGlobalRoles());
+    Assert.assertEquals(snapshot.getPerDatabaseRoles(), read.getPerDatabaseRoles());
+
+    // unknown versions are rejected
+    content[7]++;
+    try {
+      PolicySnapshot.read(content);
+      Assert.fail("Expected an unsupported version to be rejected");
+    } catch (org.apache.shiro.config.ConfigurationException e) {
+      // expected
+    }
+  }
+
+  @Test(expected=org.apache.shiro.config.ConfigurationException.class)
+  public void testInvalidPerDbFileFailsCompile() throws Exception {
+    dbPolicyFile.addPermissionsToRole("role2", "server=server1->db=db1->table=*->action=select");
+    dbPolicyFile.write(dbFile);
+    PolicyCompiler.compile(new Configuration(), path(iniFile), "server1");
+  }
+
+  @Test
+  public void testOtherServerIsRejected() throws Exception {
+    PolicyCompiler.write(new Configuration(),
+        PolicyCompiler.compile(new Configuration(), path(iniFile), "server1"), path(snapshotFile));
+    SimplePolicyEngine policy = new SimplePolicyEngine(new Configuration(),
+        path(snapshotFile), "server2");
+    List<Authorizable> authorizables = ImmutableList.<Authorizable>of(new Server("server2"),
+        new Database("db1"), new Table("tab1"));
+    Assert.assertTrue(policy.getPermissions(authorizables, GROUPS).isEmpty());
+  }
+
+  @Test
+  public void testSnapshotKeepsURIPerDbFileFlag() throws Exception {
+    String uriPermission = "server=server1->uri=file:///path/to/dir";
+    dbPolicyFile.addPermissionsToRole("role2", uriPermission);
+    dbPolicyFile.write(dbFile);
+    System.setProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE, "true");
+    try {
+      PolicyCompiler.write(new Configuration(),
+          PolicyCompiler.compile(new Configuration(), path(iniFile), "server1"), path(snapshotFile));
+    } finally {
+      System.clearProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE);
+    }
+    // the property is off where the snapshot is loaded
+    SimplePolicyEngine policy = new SimplePolicyEngine(new Configuration(),
+        path(snapshotFile), "server1");
+    List<Authorizable> uri = ImmutableList.<Authorizable>of(new Server("server1"),
+        new AccessURI("file:///path/to/dir/file"));
+    Assert.assertTrue(policy.getPermissions(uri, GROUPS).containsValue(uriPermission));
+    Assert.assertEquals(policy.getPermissions(uri, GROUPS), new MappedPolicyEngine(
+        new Configuration(), snapshotFile, "server1").getPermissions(uri, GROUPS));
+  }
+
+  @Test
+  public void testWriteReplacesSnapshot() throws Exception {
+    PolicyCompiler.write(new Configuration(),
+        PolicyCompiler.compile(new Configuration(), path(iniFile), "server1"), path(snapshotFile));
+    policyFile.addPermissionsToRole("role1", PERMISSION_DB2);
+    policyFile.write(iniFile);
+    PolicySnapshot snapshot = PolicyCompiler.compile(new Configuration(), path(iniFile), "server1");
+    PolicyCompiler.write(new Configuration(), snapshot, path(snapshotFile));
+    Assert.assertEquals(snapshot.getGlobalRoles(),
+        PolicySnapshot.read(Files.toByteArray(snapshotFile)).getGlobalRoles());
+    // no temporary file is left behind
+    Assert.assertEquals(ImmutableSet.of(iniFile.getName(), dbFile.getName(),
+        snapshotFile.getName()), ImmutableSet.copyOf(baseDir.list()));
+  }
+
+  @Test(expected=IOException.class)
+  public void testLocalGroupMappingRejectsSnapshot() throws Exception {
+    PolicyCompiler.write(new Configuration(),
+        PolicyCompiler.compile(new Configuration(), path(iniFile), "server1"), path(snapshotFile));
+    new LocalGroupMappingService(new Configuration(), path(snapshotFile));
+  }
+
+  private static Path path(File file) {
+    return new Path("file://" + file.getPath());
+  }
+}
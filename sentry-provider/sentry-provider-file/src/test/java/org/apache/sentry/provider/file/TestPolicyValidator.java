@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.shiro.config.ConfigurationException;
+import org.junit.Test;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+
+public class TestPolicyValidator {
+  private final PolicyValidator validator = new PolicyValidator(Lists.newArrayList(
+      new ServersAllIsInvalid(),
+      new DatabaseMustMatch(),
+      new DatabaseRequiredInRole(false),
+      new ServerNameMustMatch("server1")));
+
+  @Test
+  public void testValid() throws Exception {
+    Multimap<String, String> rolePrivileges = LinkedHashMultimap.create();
+    rolePrivileges.put("role1", "server=server1->db=db1->table=*->action=select");
+    rolePrivileges.put("role2", "server=server1->db=db1");
+    validator.validate("db1", rolePrivileges);
+    validator.validate(null, rolePrivileges);
+  }
+
+  @Test
+  public void testAllViolationsReported() throws Exception {
+    Multimap<String, String> rolePrivileges = LinkedHashMultimap.create();
+    rolePrivileges.put("role1", "server=server2->db=db1");
+    rolePrivileges.put("role2", "server=server1->db=db2");
+    rolePrivileges.put("role3", "server=server1->db=db1");
+    rolePrivileges.put("role4", "server=server2->db=db1");
+    rolePrivileges.put("role5", "server=server1->foo=bar");
+    try {
+      validator.validate("db1", rolePrivileges);
+      Assert.fail("Expected ConfigurationException");
+    } catch (ConfigurationException e) {
+      String[] lines = e.getMessage().split("\n");
+      Assert.assertEquals("3 invalid privileges for database db1:", lines[0]);
+      Assert.assertEquals(4, lines.length);
+      Assert.assertTrue(lines[1], lines[1].startsWith("Role role1, role4: Server name server2"));
+      Assert.assertTrue(lines[2], lines[2].startsWith("Role role2: Role server=server1->db=db2"));
+      Assert.assertTrue(lines[3], lines[3].startsWith("Role role5: No authorizable found"));
+    }
+  }
+
+  @Test
+  public void testValidatorWithoutParsedRole() throws Exception {
+    // written against the two argument validate only
+    AbstractRoleValidator noTables = new AbstractRoleValidator() {
+      @Override
+      public void validate(String database, String role) throws ConfigurationException {
+        if (role.contains("table=")) {
+          throw new ConfigurationException("Table in " + role);
+        }
+      }
+    };
+    Multimap<String, String> rolePrivileges = LinkedHashMultimap.create();
+    rolePrivileges.put("role1", "server=server1->db=db1->table=tab1");
+    rolePrivileges.put("role2", "server=server1->db=db1");
+    try {
+      new PolicyValidator(Lists.newArrayList(noTables)).validate("db1", rolePrivileges);
+      Assert.fail("Expected ConfigurationException");
+    } catch (ConfigurationException e) {
+      Assert.assertEquals("1 invalid privileges for database db1:\n" +
+          "Role role1: Table in server=server1->db=db1->table=tab1", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testLargePolicy() throws Exception {
+    Multimap<String, String> rolePrivileges = LinkedHashMultimap.create();
+    List<Integer> invalid = Lists.newArrayList(10, 7000, 24999);
+    for (int i = 0; i < 25000; i++) {
+      String server = invalid.contains(i) ? "server2" : "server1";
+      rolePrivileges.put("role" + i, "server=" + server + "->db=db1->table=tab" + i);
+    }
+    try {
+      validator.validate(null, rolePrivileges);
+      Assert.fail("Expected ConfigurationException");
+    } catch (ConfigurationException e) {
+      String[] lines = e.getMessage().split("\n");
+      Assert.assertEquals("3 invalid privileges:", lines[0]);
+      for (int i = 0; i < invalid.size(); i++) {
+        Assert.assertTrue(lines[i + 1], lines[i + 1].startsWith("Role role" + invalid.get(i) + ":"));
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class TestPrivilegeDictionary {
+  private static final String PRIVILEGE = "server=server1->db=db1->table=*->action=select";
+
+  @Test
+  public void testIntern() throws Exception {
+    PrivilegeDictionary dictionary = new PrivilegeDictionary();
+    String privilege = dictionary.intern(new String(PRIVILEGE));
+    Assert.assertSame(privilege, dictionary.intern(new String(PRIVILEGE)));
+    Assert.assertSame(dictionary.getPermission(new String(PRIVILEGE)),
+        dictionary.getPermission(new String(PRIVILEGE)));
+    Assert.assertEquals(1, dictionary.size());
+  }
+
+  @Test
+  public void testPrevious() throws Exception {
+    PrivilegeDictionary previous = new PrivilegeDictionary();
+    String privilege = previous.intern(new String(PRIVILEGE));
+    WildcardPermission permission = previous.getPermission(PRIVILEGE);
+    PrivilegeDictionary dictionary = new PrivilegeDictionary(previous);
+    Assert.assertSame(privilege, dictionary.intern(new String(PRIVILEGE)));
+    Assert.assertSame(permission, dictionary.getPermission(new String(PRIVILEGE)));
+    dictionary.detach();
+    PrivilegeDictionary detached = new PrivilegeDictionary(previous);
+    detached.detach();
+    Assert.assertNotSame(permission, detached.getPermission(PRIVILEGE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalid() throws Exception {
+    new PrivilegeDictionary().getPermission("");
+  }
+}
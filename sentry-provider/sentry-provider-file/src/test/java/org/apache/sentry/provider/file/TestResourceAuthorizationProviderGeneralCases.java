@@ -19,6 +19,7 @@ package org.apache.sentry.provider.file;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -43,6 +44,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import com.google.common.io.Files;
 
@@ -173,4 +175,35 @@ public class TestResourceAuthorizationProviderGeneralCases {
     doTestResourceAuthorizationProvider(SUB_JUNIOR_ANALYST, SVR_SERVER1, DB_JR_ANALYST, TBL_PURCHASES, INSERT, true);
     doTestResourceAuthorizationProvider(SUB_JUNIOR_ANALYST, SVR_ALL, DB_JR_ANALYST, TBL_PURCHASES, SELECT, true);
   }
+
+  @Test
+  public void testBatchMatchesSingleRequests() throws Exception {
+    List<Table> tables = ImmutableList.of(TBL_PURCHASES, new Table("payments"),
+        new Table("other"), Table.ALL);
+    List<Database> databases = ImmutableList.of(DB_CUSTOMERS, DB_ANALYST, DB_JR_ANALYST,
+        new Database("other"));
+    for (Subject subject : Arrays.asList(SUB_ADMIN, SUB_MANAGER, SUB_ANALYST, SUB_JUNIOR_ANALYST)) {
+      for (EnumSet<Action> actions : Arrays.asList(ALL, SELECT, INSERT,
+          EnumSet.of(Action.SELECT, Action.INSERT))) {
+        for (Database database : databases) {
+          List<Authorizable> parent = ImmutableList.<Authorizable>of(SVR_SERVER1, database);
+          BitSet result = authzProvider.hasAccess(subject, parent, tables, actions);
+          for (int i = 0; i < tables.size(); i++) {
+            Assert.assertEquals(subject + " " + database + " " + tables.get(i) + " " + actions,
+                authzProvider.hasAccess(subject,
+                    ImmutableList.<Authorizable>of(SVR_SERVER1, database, tables.get(i)), actions),
+                result.get(i));
+          }
+        }
+        BitSet result = authzProvider.hasAccess(subject,
+            ImmutableList.<Authorizable>of(SVR_SERVER1), databases, actions);
+        for (int i = 0; i < databases.size(); i++) {
+          Assert.assertEquals(subject + " " + databases.get(i) + " " + actions,
+              authzProvider.hasAccess(subject,
+                  ImmutableList.<Authorizable>of(SVR_SERVER1, databases.get(i)), actions),
+              result.get(i));
+        }
+      }
+    }
+  }
 }
@@ -16,10 +16,12 @@
  */
 package org.apache.sentry.provider.file;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
 
@@ -28,15 +30,19 @@ import org.apache.sentry.core.AccessURI;
 import org.apache.sentry.core.Action;
 import org.apache.sentry.core.Authorizable;
 import org.apache.sentry.core.AuthorizationProvider;
+import org.apache.sentry.core.Database;
 import org.apache.sentry.core.Server;
 import org.apache.sentry.core.Subject;
+import org.apache.sentry.core.Table;
 import org.apache.sentry.provider.file.LocalGroupResourceAuthorizationProvider;
 import org.apache.sentry.provider.file.PolicyFile;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
 import com.google.common.io.Files;
 
 public class TestResourceAuthorizationProviderSpecialCases {
@@ -110,6 +116,70 @@ public class TestResourceAuthorizationProviderSpecialCases {
     Assert.assertFalse(authorizableHierarchy.toString(),
         authzProvider.hasAccess(user1, authorizableHierarchy, actions));
   }
+  @Test
+  public void testEffectivePrivilegesReused() throws Exception {
+    Subject user1 = new Subject("user1");
+    Server server1 = new Server("server1");
+    EnumSet<Action> actions = EnumSet.of(Action.SELECT);
+    policyFile.addRolesToGroup("group1", "role1")
+      .addPermissionsToRole("role1", "server=server1->db=db1->table=*->action=select");
+    policyFile.write(iniFile);
+    SimplePolicyEngine policy = new SimplePolicyEngine(initResource, server1.getName());
+    Multimap<String, String> userToGroups = HashMultimap.create();
+    userToGroups.put(user1.getName(), "group1");
+    ResourceAuthorizationProvider provider = new ResourceAuthorizationProvider(policy,
+        new MockGroupMappingServiceProvider(userToGroups)) {};
+    List<Authorizable> tab1 = ImmutableList.<Authorizable>of(server1, new Database("db1"), new Table("tab1"));
+    List<Authorizable> tab2 = ImmutableList.<Authorizable>of(server1, new Database("db1"), new Table("tab2"));
+    Assert.assertTrue(provider.hasAccess(user1, tab1, actions));
+    EffectivePrivileges privileges = provider.getEffectivePrivileges(user1);
+    Assert.assertTrue(provider.hasAccess(user1, tab2, actions));
+    Assert.assertSame(privileges, provider.getEffectivePrivileges(user1));
+    // both tables are in the scope of db1
+    Assert.assertEquals(1, privileges.getScopeCount());
+
+    // a group change builds a new snapshot
+    userToGroups.put(user1.getName(), "group2");
+    Assert.assertNotSame(privileges, provider.getEffectivePrivileges(user1));
+    privileges = provider.getEffectivePrivileges(user1);
+
+    // as does loading a new policy
+    policyFile.removePermissionsFromRole("role1", "server=server1->db=db1->table=*->action=select");
+    policyFile.write(iniFile);
+    policy.parse();
+    Assert.assertFalse(provider.hasAccess(user1, tab1, actions));
+    Assert.assertNotSame(privileges, provider.getEffectivePrivileges(user1));
+  }
+  @Test
+  public void testClose() throws Exception {
+    policyFile.addRolesToGroup("group1", "role1")
+      .addPermissionsToRole("role1", "server=server1->db=db1");
+    policyFile.write(iniFile);
+    AtomicInteger closeCount = new AtomicInteger();
+    Multimap<String, String> groups = HashMultimap.create();
+    GroupMappingService groupService = new ClosingGroupMappingService(groups, closeCount);
+    CachingAuthorizationProvider provider = new CachingAuthorizationProvider(
+        new HadoopGroupResourceAuthorizationProvider(
+            new SimplePolicyEngine(initResource, "server1"), groupService), 10L, 1000L);
+    provider.close();
+    Assert.assertEquals(1, closeCount.get());
+  }
+
+  private static class ClosingGroupMappingService extends MockGroupMappingServiceProvider
+      implements Closeable {
+    private final AtomicInteger closeCount;
+
+    ClosingGroupMappingService(Multimap<String, String> groups, AtomicInteger closeCount) {
+      super(groups);
+      this.closeCount = closeCount;
+    }
+
+    @Override
+    public void close() {
+      closeCount.incrementAndGet();
+    }
+  }
+
   @Test(expected=IllegalArgumentException.class)
   public void testInvalidPath() throws Exception {
     new AccessURI(":invaliduri");
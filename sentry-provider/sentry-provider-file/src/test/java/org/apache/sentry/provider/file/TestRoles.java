@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+public class TestRoles {
+  private static final String PERMISSION_DB1 = "server=server1->db=db1->table=*->action=select";
+  private static final String PERMISSION_DB2 = "server=server1->db=db2->table=*->action=select";
+
+  @Test
+  public void testScopes() throws Exception {
+    Roles roles = createRoles(2, false);
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1, PERMISSION_DB2),
+        roles.getRoles("db1", "group1", false));
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1), roles.getRoles("db3", "group1", false));
+    // URIs in per-db files are not allowed
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1), roles.getRoles(null, "group1", true));
+  }
+
+  @Test
+  public void testURIScopeIndependentOfDatabases() throws Exception {
+    Roles roles = createRoles(500, true);
+    ImmutableSet<String> privileges = roles.getRoles(null, "group1", true);
+    Assert.assertEquals(501, privileges.size());
+    Assert.assertTrue(privileges.contains(uri(0)));
+    Assert.assertTrue(privileges.contains(uri(499)));
+    // the global file and the union of the per-db files, each compiled once
+    ImmutableSet<PermissionTrie> permissions = roles.getPermissions(null, "group1", true);
+    Assert.assertEquals(2, permissions.size());
+    Assert.assertEquals(permissions, roles.getPermissions("db7", "group1", true));
+    Assert.assertTrue(roles.getPermissions(null, "group2", true).isEmpty());
+  }
+
+  /**
+   * Group1 holds PERMISSION_DB1 in the global file and a URI in each
+   * per-db file
+   */
+  private static Roles createRoles(int databases, boolean allowURIPerDbFile) {
+    PrivilegeDictionary dictionary = new PrivilegeDictionary();
+    ImmutableMap.Builder<String, GroupRoles> perDatabaseRoles = ImmutableMap.builder();
+    for (int i = 0; i < databases; i++) {
+      perDatabaseRoles.put("db" + i, GroupRoles.compile(
+          ImmutableSetMultimap.of("group1", "role1"),
+          ImmutableSetMultimap.of("role1", i == 1 ? PERMISSION_DB2 : uri(i)), dictionary));
+    }
+    return new Roles(GroupRoles.compile(ImmutableSetMultimap.of("group1", "role1"),
+        ImmutableSetMultimap.of("role1", PERMISSION_DB1), dictionary),
+        perDatabaseRoles.build(), allowURIPerDbFile);
+  }
+
+  private static String uri(int database) {
+    return "server=server1->uri=file:///path/db" + database;
+  }
+}
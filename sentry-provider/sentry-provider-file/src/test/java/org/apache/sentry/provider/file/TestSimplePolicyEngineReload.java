@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.sentry.core.AccessURI;
+import org.apache.sentry.core.Authorizable;
+import org.apache.sentry.core.Database;
+import org.apache.sentry.core.Server;
+import org.apache.sentry.core.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class TestSimplePolicyEngineReload {
+  private static final String PERMISSION_DB1 = "server=server1->db=db1->table=*->action=select";
+  private static final String PERMISSION_DB2 = "server=server1->db=db2->table=*->action=select";
+  private static final List<Authorizable> AUTHORIZABLES = ImmutableList.<Authorizable>of(
+      new Server("server1"), new Database("db1"), new Table("tab1"));
+  private static final List<String> GROUPS = Lists.newArrayList("group1");
+
+  private File baseDir;
+  private File iniFile;
+  private PolicyFile policyFile;
+  private SimplePolicyEngine policy;
+
+  @Before
+  public void setup() throws IOException {
+    baseDir = Files.createTempDir();
+    iniFile = new File(baseDir, "policy.ini");
+    policyFile = new PolicyFile();
+    policyFile.addRolesToGroup("group1", "role1")
+      .addPermissionsToRole("role1", PERMISSION_DB1);
+    policyFile.write(iniFile);
+  }
+
+  @After
+  public void teardown() throws IOException {
+    if(policy != null) {
+      policy.close();
+    }
+    if(baseDir != null) {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  @Test
+  public void testReloadIfModified() throws Exception {
+    policy = newPolicy(new Configuration());
+    Assert.assertFalse(policy.reloadIfModified());
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1), getPermissions());
+
+    policyFile.addPermissionsToRole("role1", PERMISSION_DB2);
+    write(policyFile, iniFile);
+    long generation = policy.getGeneration();
+    Assert.assertTrue(policy.reloadIfModified());
+    Assert.assertEquals(generation + 1, policy.getGeneration());
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1, PERMISSION_DB2), getPermissions());
+    Assert.assertTrue(policy.getLastReloadTime() > 0);
+    Assert.assertFalse(policy.reloadIfModified());
+    Assert.assertEquals(0, policy.getReloadFailureCount());
+  }
+
+  @Test
+  public void testReloadPerDbFile() throws Exception {
+    File dbFile = new File(baseDir, "db2.ini");
+    PolicyFile dbPolicyFile = new PolicyFile();
+    dbPolicyFile.addRolesToGroup("group1", "role2")
+      .addPermissionsToRole("role2", PERMISSION_DB2);
+    dbPolicyFile.write(dbFile);
+    policyFile.addDatabase("db2", dbFile.getPath());
+    write(policyFile, iniFile);
+    policy = newPolicy(new Configuration());
+    Assert.assertFalse(policy.reloadIfModified());
+
+    dbPolicyFile.removePermissionsFromRole("role2", PERMISSION_DB2);
+    write(dbPolicyFile, dbFile);
+    Assert.assertTrue(policy.reloadIfModified());
+  }
+
+  @Test
+  public void testIncrementalReload() throws Exception {
+    String permissionDb3 = "server=server1->db=db3->table=*->action=select";
+    File db2File = new File(baseDir, "db2.ini");
+    File db3File = new File(baseDir, "db3.ini");
+    PolicyFile db2PolicyFile = new PolicyFile();
+    db2PolicyFile.addRolesToGroup("group1", "role2")
+      .addPermissionsToRole("role2", PERMISSION_DB2);
+    db2PolicyFile.write(db2File);
+    PolicyFile db3PolicyFile = new PolicyFile();
+    db3PolicyFile.addRolesToGroup("group1", "role3")
+      .addPermissionsToRole("role3", permissionDb3);
+    db3PolicyFile.write(db3File);
+    policyFile.addDatabase("db2", db2File.getPath())
+      .addDatabase("db3", db3File.getPath());
+    write(policyFile, iniFile);
+    policy = newPolicy(new Configuration());
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB2), getPermissions("db2"));
+    Assert.assertEquals(ImmutableSet.of(permissionDb3), getPermissions("db3"));
+
+    // change db3 without changing its modification time, it should not be read again
+    long db3ModificationTime = db3File.lastModified();
+    db3PolicyFile.removePermissionsFromRole("role3", permissionDb3);
+    db3PolicyFile.write(db3File);
+    Assert.assertTrue(db3File.setLastModified(db3ModificationTime));
+    // change db2, only it should be read again
+    db2PolicyFile.addPermissionsToRole("role2", "server=server1->db=db2->table=tab2->action=insert");
+    write(db2PolicyFile, db2File);
+    Assert.assertTrue(policy.reloadIfModified());
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB2, "server=server1->db=db2->table=tab2->action=insert"),
+        getPermissions("db2"));
+    Assert.assertEquals(ImmutableSet.of(permissionDb3), getPermissions("db3"));
+
+    // a full parse reads everything
+    policy.parse();
+    Assert.assertEquals(ImmutableSet.of(), getPermissions("db3"));
+  }
+
+  @Test
+  public void testManyPerDbFiles() throws Exception {
+    int databaseCount = 20;
+    List<PolicyFile> dbPolicyFiles = Lists.newArrayList();
+    for(int i = 0; i < databaseCount; i++) {
+      File dbFile = new File(baseDir, "db" + i + ".ini");
+      PolicyFile dbPolicyFile = new PolicyFile();
+      dbPolicyFile.addRolesToGroup("group1", "role" + i)
+        .addPermissionsToRole("role" + i, "server=server1->db=db" + i + "->table=*->action=select");
+      dbPolicyFile.write(dbFile);
+      dbPolicyFiles.add(dbPolicyFile);
+      policyFile.addDatabase("db" + i, dbFile.getPath());
+    }
+    // an invalid file is skipped without affecting the others
+    dbPolicyFiles.get(7).addPermissionsToRole("role7", "server=server1->db=db8->table=*->action=select");
+    dbPolicyFiles.get(7).write(new File(baseDir, "db7.ini"));
+    write(policyFile, iniFile);
+    policy = newPolicy(new Configuration());
+    for(int i = 0; i < databaseCount; i++) {
+      if(i == 7) {
+        Assert.assertEquals(ImmutableSet.of(), getPermissions("db7"));
+      } else {
+        Assert.assertEquals(ImmutableSet.of("server=server1->db=db" + i + "->table=*->action=select"),
+            getPermissions("db" + i));
+      }
+    }
+    // the invalid file is still watched
+    dbPolicyFiles.get(7).removePermissionsFromRole("role7", "server=server1->db=db8->table=*->action=select");
+    write(dbPolicyFiles.get(7), new File(baseDir, "db7.ini"));
+    Assert.assertTrue(policy.reloadIfModified());
+    Assert.assertEquals(ImmutableSet.of("server=server1->db=db7->table=*->action=select"),
+        getPermissions("db7"));
+  }
+
+  @Test
+  public void testTouchedFileIsNotParsed() throws Exception {
+    policy = newPolicy(new Configuration());
+    Assert.assertTrue(iniFile.setLastModified(iniFile.lastModified() + 2000L));
+    long generation = policy.getGeneration();
+    Assert.assertTrue(policy.reloadIfModified());
+    Assert.assertEquals(generation + 1, policy.getGeneration());
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1), getPermissions());
+    Assert.assertFalse(policy.reloadIfModified());
+  }
+
+  @Test
+  public void testFailedReloadKeepsPolicy() throws Exception {
+    policy = newPolicy(new Configuration());
+    Assert.assertTrue(iniFile.delete());
+    Assert.assertFalse(policy.reloadIfModified());
+    Assert.assertEquals(1, policy.getReloadFailureCount());
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1), getPermissions());
+
+    // server=* is rejected by the validators
+    policyFile.addPermissionsToRole("role1", "server=*");
+    write(policyFile, iniFile);
+    Assert.assertFalse(policy.reloadIfModified());
+    Assert.assertEquals(2, policy.getReloadFailureCount());
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1), getPermissions());
+  }
+
+  @Test
+  public void testURIInPerDbFile() throws Exception {
+    String permissionURI = "server=server1->uri=file:///path/to/dir";
+    File dbFile = new File(baseDir, "db2.ini");
+    PolicyFile dbPolicyFile = new PolicyFile();
+    dbPolicyFile.addRolesToGroup("group1", "role2")
+      .addPermissionsToRole("role2", PERMISSION_DB2, permissionURI);
+    dbPolicyFile.write(dbFile);
+    policyFile.addDatabase("db2", dbFile.getPath());
+    write(policyFile, iniFile);
+    List<Authorizable> uri = ImmutableList.<Authorizable>of(new Server("server1"),
+        new AccessURI("file:///path/to/dir/file"));
+    System.setProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE, "true");
+    try {
+      policy = newPolicy(new Configuration());
+      Assert.assertTrue(policy.getPermissions(uri, GROUPS).containsValue(permissionURI));
+      // the property is read when the policy is loaded
+      System.setProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE, "false");
+      Assert.assertTrue(policy.getPermissions(uri, GROUPS).containsValue(permissionURI));
+    } finally {
+      System.clearProperty(SimplePolicyEngine.ACCESS_ALLOW_URI_PER_DB_POLICYFILE);
+    }
+    // without the property the per-db file is invalid and skipped
+    policy.parse();
+    Assert.assertFalse(policy.getPermissions(uri, GROUPS).containsValue(permissionURI));
+    Assert.assertEquals(ImmutableSet.of(), getPermissions("db2"));
+  }
+
+  @Test
+  public void testBackgroundReload() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setLong(SimplePolicyEngine.ACCESS_POLICY_RELOAD_INTERVAL_MS, 10L);
+    policy = newPolicy(conf);
+    policyFile.addPermissionsToRole("role1", PERMISSION_DB2);
+    write(policyFile, iniFile);
+    long deadline = System.currentTimeMillis() + 30000L;
+    while(getPermissions().size() != 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+    Assert.assertEquals(ImmutableSet.of(PERMISSION_DB1, PERMISSION_DB2), getPermissions());
+  }
+
+  private SimplePolicyEngine newPolicy(Configuration conf) throws IOException {
+    return new SimplePolicyEngine(conf, new Path("file://" + iniFile.getPath()), "server1");
+  }
+
+  private ImmutableSet<String> getPermissions() {
+    return ImmutableSet.copyOf(policy.getPermissions(AUTHORIZABLES, GROUPS).values());
+  }
+
+  private ImmutableSet<String> getPermissions(String database) {
+    List<Authorizable> authorizables = ImmutableList.<Authorizable>of(
+        new Server("server1"), new Database(database));
+    ImmutableSet.Builder<String> result = ImmutableSet.builder();
+    for(String permission : policy.getPermissions(authorizables, GROUPS).values()) {
+      if(permission.contains("db=" + database)) {
+        result.add(permission);
+      }
+    }
+    return result.build();
+  }
+
+  /**
+   * Write the file and make sure the modification time changes
+   * even if the file system has a coarse granularity
+   */
+  private static void write(PolicyFile policyFile, File file) throws IOException {
+    long modificationTime = file.lastModified();
+    policyFile.write(file);
+    Assert.assertTrue(file.setLastModified(Math.max(modificationTime, file.lastModified()) + 2000L));
+  }
+}
@@ -19,6 +19,7 @@
 package org.apache.sentry.provider.file;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static org.apache.sentry.provider.file.PolicyFileConstants.AUTHORIZABLE_JOINER;
 import static org.apache.sentry.provider.file.PolicyFileConstants.KV_JOINER;
@@ -28,6 +29,8 @@ import org.apache.sentry.core.AccessConstants;
 import org.apache.shiro.authz.Permission;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 public class TestWildcardPermission {
 
   private static final String ALL = AccessConstants.ALL;
@@ -272,6 +275,34 @@ public class TestWildcardPermission {
     assertFalse(WildcardPermission.impliesURI("hdfs://namenode:8020/path",
         "hdfs://namenode:8020/pathFooBar"));
   }
+  @Test
+  public void testImpliesURIParsedOnce() throws Exception {
+    String property = TestWildcardPermission.class.getName() + ".namenode";
+    System.setProperty(property, "namenode:8020");
+    try {
+      String privilege = "server=server1->uri=hdfs://${" + property + "}/path";
+      PrivilegeDictionary dictionary = new PrivilegeDictionary();
+      WildcardPermission policy = dictionary.getPermission(privilege);
+      KeyValue requestURI = new KeyValue("uri", "hdfs://namenode:8020/path/to/some/dir");
+      WildcardPermission request = new WildcardPermission(Lists.newArrayList(
+          new KeyValue("server", "server1"), requestURI));
+      assertTrue(policy.implies(request));
+      assertTrue(new PermissionTrie(Lists.newArrayList(policy)).implies(request));
+      // the request URI is parsed once and reused by later checks
+      assertSame(requestURI.getRequestURI(), requestURI.getRequestURI());
+      // the policy URI was substituted when it was first used
+      System.setProperty(property, "namenode2:8020");
+      assertTrue(policy.implies(request));
+      // and is substituted again once the policy is reloaded
+      WildcardPermission reloaded = new PrivilegeDictionary(dictionary).getPermission(privilege);
+      assertFalse(reloaded.implies(request));
+      assertTrue(reloaded.implies(new WildcardPermission(Lists.newArrayList(
+          new KeyValue("server", "server1"),
+          new KeyValue("uri", "hdfs://namenode2:8020/path/to/some/dir")))));
+    } finally {
+      System.clearProperty(property);
+    }
+  }
   static WildcardPermission create(KeyValue... keyValues) {
     return create(AUTHORIZABLE_JOINER.join(keyValues));
 